@@ -0,0 +1,105 @@
+package jsentance.bench;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import jsentance.JSentance;
+import jsentance.project.generationManager.InflectedWord;
+import jsentance.project.generationManager.SentenceGenerator;
+import jsentance.project.outputManager.BlockCorpusWriter;
+import jsentance.project.outputManager.CorpusWriter;
+import jsentance.project.outputManager.MappedCorpus;
+import jsentance.project.wordManager.FormPool;
+import jsentance.project.wordManager.Lexeme;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Запись корпуса текстом (CorpusWriter) и в блочном формате (BlockCorpusWriter),
+ * последовательное чтение блочного корпуса через MappedCorpus
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CorpusFormatBenchmark {
+    private static final int SENTENCES = 100_000;
+    private static final int MAX_LENGTH = 8;
+
+    private FormPool forms;
+    private List<List<InflectedWord>> sentences;
+    private Path text;
+    private Path blocks;
+    private Path written;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        forms = new FormPool();
+        List<Lexeme> lexemes = Lexeme.fromWords(JSentance.createVocabulary()).stream()
+            .map(word -> word.pooled(forms))
+            .toList();
+        SentenceGenerator generator = SentenceGenerator.fromLexemes(lexemes);
+        sentences = generator.generateSentences(SENTENCES, MAX_LENGTH, 42).toList();
+        text = Files.createTempFile("corpus", ".txt");
+        blocks = Files.createTempFile("corpus", ".jscp");
+        written = Files.createTempFile("corpus", ".jscp");
+        try (BlockCorpusWriter out = BlockCorpusWriter.open(blocks, forms)) {
+            for (List<InflectedWord> sentence : sentences) {
+                out.write(sentence);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(text);
+        Files.deleteIfExists(blocks);
+        Files.deleteIfExists(written);
+    }
+
+    @Benchmark
+    public long writeText() throws IOException {
+        try (CorpusWriter out = CorpusWriter.open(text)) {
+            for (List<InflectedWord> sentence : sentences) {
+                out.write(sentence);
+            }
+        }
+        return Files.size(text);
+    }
+
+    @Benchmark
+    public long writeBlocks() throws IOException {
+        try (BlockCorpusWriter out = BlockCorpusWriter.open(written, forms)) {
+            for (List<InflectedWord> sentence : sentences) {
+                out.write(sentence);
+            }
+        }
+        return Files.size(written);
+    }
+
+    @Benchmark
+    public long readBlocks() throws IOException {
+        byte[] buffer = new byte[1 << 12];
+        long bytes = 0;
+        try (MappedCorpus corpus = MappedCorpus.open(blocks)) {
+            for (long i = 0; i < corpus.size(); i++) {
+                bytes += corpus.render(i, buffer, 0);
+            }
+        }
+        return bytes;
+    }
+}
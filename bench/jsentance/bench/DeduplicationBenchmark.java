@@ -0,0 +1,79 @@
+package jsentance.bench;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import jsentance.JSentance;
+import jsentance.project.generationManager.InflectedWord;
+import jsentance.project.generationManager.SentenceDeduplicator;
+import jsentance.project.generationManager.SentenceGenerator;
+import jsentance.project.wordManager.FormPool;
+import jsentance.project.wordManager.Lexeme;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Отсев повторов в уже сгенерированных предложениях: хэши номеров форм
+ * (точное множество и фильтр Блума) против множества строк
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DeduplicationBenchmark {
+    private static final int SENTENCES = 200_000;
+    private static final int MAX_LENGTH = 4;
+
+    private FormPool forms;
+    private SentenceGenerator generator;
+    private List<List<InflectedWord>> sentences;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        forms = new FormPool();
+        List<Lexeme> lexemes = Lexeme.fromWords(JSentance.createVocabulary()).stream()
+            .map(word -> word.pooled(forms))
+            .toList();
+        generator = SentenceGenerator.fromLexemes(lexemes);
+        sentences = generator.generateSentences(SENTENCES, MAX_LENGTH, 42).toList();
+    }
+
+    @Benchmark
+    public long exact() {
+        SentenceDeduplicator deduplicator = SentenceDeduplicator.exact(SENTENCES, forms);
+        for (List<InflectedWord> sentence : sentences) {
+            deduplicator.add(sentence);
+        }
+        return deduplicator.count();
+    }
+
+    @Benchmark
+    public long bloom() {
+        SentenceDeduplicator deduplicator = SentenceDeduplicator.bloom(SENTENCES, 0.001, forms);
+        for (List<InflectedWord> sentence : sentences) {
+            deduplicator.add(sentence);
+        }
+        return deduplicator.count();
+    }
+
+    @Benchmark
+    public int strings() {
+        Set<String> seen = new HashSet<>();
+        for (List<InflectedWord> sentence : sentences) {
+            seen.add(generator.sentenceToString(sentence));
+        }
+        return seen.size();
+    }
+}
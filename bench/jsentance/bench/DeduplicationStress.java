@@ -0,0 +1,97 @@
+package jsentance.bench;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import jsentance.JSentance;
+import jsentance.project.generationManager.InflectedWord;
+import jsentance.project.generationManager.SentenceDeduplicator;
+import jsentance.project.generationManager.SentenceGenerator;
+import jsentance.project.wordManager.FormPool;
+import jsentance.project.wordManager.Lexeme;
+
+/**
+ * Нагрузочная проверка потокобезопасности SentenceDeduplicator (замки фильтра Блума по хэшу):
+ * несколько потоков одновременно добавляют одни и те же различные предложения, и каждое
+ * должно быть принято как новое не больше одного раза. Заодно считается, сколько новых
+ * предложений фильтр отбросил (ложные срабатывания).
+ *
+ * Не JMH-бенчмарк, а отдельная программа; запуск после ant bench-compile:
+ *
+ *     java -cp build/classes:build/bench/classes jsentance.bench.DeduplicationStress [потоков] [раундов]
+ */
+public final class DeduplicationStress {
+    private static final int SENTENCES = 50_000;
+    private static final int MAX_LENGTH = 8;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+
+    private DeduplicationStress() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        FormPool forms = new FormPool();
+        List<Lexeme> lexemes = Lexeme.fromWords(JSentance.createVocabulary()).stream()
+            .map(word -> word.pooled(forms))
+            .toList();
+        SentenceGenerator generator = SentenceGenerator.fromLexemes(lexemes);
+        List<List<InflectedWord>> sentences = new ArrayList<>(SENTENCES);
+        Set<String> seen = new HashSet<>();
+        for (long i = 0; sentences.size() < SENTENCES; i++) {
+            List<InflectedWord> sentence = generator.generateSentence(MAX_LENGTH, 1, i);
+            if (seen.add(generator.sentenceToString(sentence))) {
+                sentences.add(sentence);
+            }
+        }
+
+        long duplicates = 0;
+        long rejected = 0;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < rounds; round++) {
+                SentenceDeduplicator deduplicator = SentenceDeduplicator.bloom(SENTENCES, FALSE_POSITIVE_RATE, forms);
+                AtomicIntegerArray accepted = new AtomicIntegerArray(SENTENCES);
+                CyclicBarrier start = new CyclicBarrier(threads);
+                List<Future<?>> tasks = new ArrayList<>(threads);
+                for (int t = 0; t < threads; t++) {
+                    tasks.add(executor.submit(() -> {
+                        start.await();
+                        for (int i = 0; i < SENTENCES; i++) {
+                            if (deduplicator.add(sentences.get(i))) {
+                                accepted.incrementAndGet(i);
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> task : tasks) {
+                    task.get();
+                }
+                for (int i = 0; i < SENTENCES; i++) {
+                    if (accepted.get(i) > 1) {
+                        duplicates++;
+                    } else if (accepted.get(i) == 0) {
+                        rejected++;
+                    }
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        System.out.printf("Потоков: %d, раундов: %d по %d предложений%n", threads, rounds, SENTENCES);
+        System.out.printf("Принято дважды: %d, новых отброшено: %d (%.4f при заданных %.4f)%n", duplicates, rejected,
+                          rejected / ((double) rounds * SENTENCES), FALSE_POSITIVE_RATE);
+        if (duplicates > 0) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package jsentance.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import jsentance.JSentance;
+import jsentance.project.generationManager.InflectedWord;
+import jsentance.project.generationManager.SentenceGenerator;
+import jsentance.project.wordManager.Lexeme;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Генерация и вывод предложений: пропускная способность и перцентили задержки
+ * в зависимости от maxLength и размера словаря
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class GenerationBenchmark {
+
+    @Param({"5", "40", "1000"})
+    public int maxLength;
+
+    /** Во сколько раз размножить встроенный словарь (547 слов) */
+    @Param({"1", "100", "400"})
+    public int vocabularyScale;
+
+    /** Частоты слов по закону Ципфа (выбор через таблицы псевдонимов) или равные */
+    @Param({"false", "true"})
+    public boolean weighted;
+
+    private SentenceGenerator generator;
+    private List<InflectedWord> sentence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Lexeme> base = Lexeme.fromWords(JSentance.createVocabulary());
+        List<Lexeme> lexemes = new ArrayList<>(base.size() * vocabularyScale);
+        for (int i = 0; i < vocabularyScale; i++) {
+            lexemes.addAll(base);
+        }
+        if (weighted) {
+            for (int i = 0; i < lexemes.size(); i++) {
+                lexemes.set(i, lexemes.get(i).withFrequency(1.0 / (i + 1)));
+            }
+        }
+        generator = SentenceGenerator.fromLexemes(lexemes, new SplittableRandom(42));
+        sentence = generator.generateSentence(maxLength);
+    }
+
+    @Benchmark
+    public List<InflectedWord> generateSentence() {
+        return generator.generateSentence(maxLength);
+    }
+
+    @Benchmark
+    public String sentenceToString() {
+        return generator.sentenceToString(sentence);
+    }
+
+    @Benchmark
+    public String generateAndRender() {
+        return generator.sentenceToString(generator.generateSentence(maxLength));
+    }
+}
@@ -0,0 +1,80 @@
+package jsentance.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import jsentance.JSentance;
+import jsentance.project.lexiconManager.LexiconLoader;
+import jsentance.project.wordManager.Lexeme;
+import jsentance.project.wordManager.MorphologyEngine;
+import jsentance.project.wordManager.Word;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Загрузка исходника словаря с морфологией в зависимости от числа потоков пула
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Thread)
+public class LexiconLoadBenchmark {
+
+    /** Во сколько раз размножить встроенный словарь (547 слов) в исходнике */
+    @Param({"200"})
+    public int vocabularyScale;
+
+    /** Потоков в пуле загрузчика */
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private Path source;
+    private ForkJoinPool pool;
+    private LexiconLoader loader;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<Word> vocabulary = JSentance.createVocabulary();
+        source = Files.createTempFile("lexicon", ".tsv");
+        try (BufferedWriter out = Files.newBufferedWriter(source, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < vocabularyScale; i++) {
+                for (Word word : vocabulary) {
+                    out.write(word.value + "\t" + word.genus.name().toLowerCase(Locale.ROOT) + "\t"
+                              + word.partOfSpeech.name().toLowerCase(Locale.ROOT) + "\n");
+                }
+            }
+        }
+        pool = new ForkJoinPool(threads);
+        loader = new LexiconLoader(MorphologyEngine.defaultEngine(), pool);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        pool.shutdown();
+        Files.deleteIfExists(source);
+    }
+
+    @Benchmark
+    public List<Lexeme> load() throws IOException {
+        return loader.load(source);
+    }
+}
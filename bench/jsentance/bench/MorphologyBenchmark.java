@@ -0,0 +1,73 @@
+package jsentance.bench;
+
+import java.util.concurrent.TimeUnit;
+import jsentance.JSentance;
+import jsentance.project.wordManager.Declension;
+import jsentance.project.wordManager.FormCache;
+import jsentance.project.wordManager.Genus;
+import jsentance.project.wordManager.Lexeme;
+import jsentance.project.wordManager.MorphologyEngine;
+import jsentance.project.wordManager.PartOfSpeech;
+import jsentance.project.wordManager.Word;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Морфология Word по частям речи и ленивые формы через FormCache
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class MorphologyBenchmark {
+
+    @Param({"NOUN", "ADJECTIVE", "VERB", "PREPOSITION", "ADVERB"})
+    public PartOfSpeech partOfSpeech;
+
+    private Word word;
+    private Lexeme lazy;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        word = JSentance.createVocabulary().stream()
+            .filter(w -> w.partOfSpeech == partOfSpeech)
+            .findFirst()
+            .orElseThrow();
+        MorphologyEngine morphology = MorphologyEngine.defaultEngine();
+        lazy = morphology.lazy(word.value, word.genus, partOfSpeech, new FormCache(morphology));
+    }
+
+    @Benchmark
+    public Word generateDeclensions() {
+        word.generateDeclensions();
+        return word;
+    }
+
+    @Benchmark
+    public Word generateTenses() {
+        word.generateTenses();
+        return word;
+    }
+
+    @Benchmark
+    public Word newWord() {
+        return new Word(word.value, Genus.MASCULINE, partOfSpeech);
+    }
+
+    @Benchmark
+    public String lazyDeclension() {
+        return lazy.declension(Declension.GENITIVE);
+    }
+}
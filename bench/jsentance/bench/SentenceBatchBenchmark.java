@@ -0,0 +1,84 @@
+package jsentance.bench;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import jsentance.JSentance;
+import jsentance.project.generationManager.InflectedWord;
+import jsentance.project.generationManager.SentenceBatch;
+import jsentance.project.generationManager.SentenceGenerator;
+import jsentance.project.outputManager.SentenceWriter;
+import jsentance.project.wordManager.FormPool;
+import jsentance.project.wordManager.Lexeme;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Вывод пакета предложений: колонки SentenceBatch против списков InflectedWord
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SentenceBatchBenchmark {
+    private static final int SENTENCES = 100_000;
+    private static final int MAX_LENGTH = 20;
+
+    @Param({"false", "true"})
+    public boolean offHeap;
+
+    private SentenceBatch batch;
+    private List<List<InflectedWord>> sentences;
+    private SentenceWriter writer;
+    private ByteBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        FormPool forms = new FormPool();
+        List<Lexeme> lexemes = Lexeme.fromWords(JSentance.createVocabulary()).stream()
+            .map(word -> word.pooled(forms))
+            .toList();
+        SentenceGenerator generator = SentenceGenerator.fromLexemes(lexemes);
+        batch = offHeap
+            ? SentenceBatch.offHeap(SENTENCES, SENTENCES * MAX_LENGTH, forms)
+            : SentenceBatch.onHeap(SENTENCES, SENTENCES * MAX_LENGTH, forms);
+        generator.generateBatch(batch, MAX_LENGTH, 42, 0);
+        sentences = generator.generateSentences(SENTENCES, MAX_LENGTH, 42).toList();
+        writer = new SentenceWriter();
+        buffer = ByteBuffer.allocateDirect(1 << 16);
+    }
+
+    @Benchmark
+    public long renderBatch() {
+        long total = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            buffer.clear();
+            batch.render(i, buffer);
+            total += buffer.position();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long renderLists() {
+        long total = 0;
+        for (List<InflectedWord> sentence : sentences) {
+            buffer.clear();
+            writer.render(sentence, buffer);
+            total += buffer.position();
+        }
+        return total;
+    }
+}
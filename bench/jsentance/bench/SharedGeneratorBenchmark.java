@@ -0,0 +1,66 @@
+package jsentance.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import jsentance.JSentance;
+import jsentance.project.generationManager.InflectedWord;
+import jsentance.project.generationManager.SentenceGenerator;
+import jsentance.project.wordManager.Lexeme;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Один генератор на все потоки: масштабирование по числу потоков
+ * (запускать с -t 1, -t 4, -t 32 и т.д.) и генерация во время подмены словаря
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SharedGeneratorBenchmark {
+
+    @Param({"40"})
+    public int maxLength;
+
+    private SentenceGenerator generator;
+    private List<Lexeme> lexemes;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        lexemes = Lexeme.fromWords(JSentance.createVocabulary());
+        generator = SentenceGenerator.fromLexemes(lexemes);
+    }
+
+    @Benchmark
+    public List<InflectedWord> generateShared() {
+        return generator.generateSentence(maxLength);
+    }
+
+    @Benchmark
+    @Group("swap")
+    @GroupThreads(7)
+    public List<InflectedWord> generateWhileSwapping() {
+        return generator.generateSentence(maxLength);
+    }
+
+    @Benchmark
+    @Group("swap")
+    @GroupThreads(1)
+    public void swapVocabulary() {
+        generator.setLexemes(lexemes);
+    }
+}
@@ -0,0 +1,76 @@
+package jsentance.bench;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import jsentance.JSentance;
+import jsentance.project.generationManager.InflectedWord;
+import jsentance.project.generationManager.SentenceGenerator;
+import jsentance.project.generationManager.SentenceTemplates;
+import jsentance.project.outputManager.SentenceWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Предложение одной структуры в UTF-8: скомпилированный шаблон против генерации по грамматике
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TemplateBenchmark {
+    private static final String SKELETON =
+        "ADJECTIVE NOMINATIVE agree NOUN NOMINATIVE agree VERB PAST agree PREPOSITION NOUN governed";
+
+    private SentenceGenerator generator;
+    private SentenceTemplates templates;
+    private SentenceWriter writer;
+    private SplittableRandom random;
+    private byte[] out;
+    private ByteBuffer buffer;
+    private SentenceTemplates.Cursor cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        generator = new SentenceGenerator(JSentance.createVocabulary(), new SplittableRandom(42));
+        templates = generator.compileTemplates(SKELETON);
+        writer = new SentenceWriter();
+        random = new SplittableRandom(42);
+        out = new byte[templates.maxEncodedLength()];
+        buffer = ByteBuffer.allocate(1 << 16);
+        cursor = templates.cursor(0, templates.combinationCount());
+    }
+
+    @Benchmark
+    public int template() {
+        return templates.render(random, out, 0);
+    }
+
+    @Benchmark
+    public int enumerate() {
+        if (!cursor.hasNext()) {
+            cursor = templates.cursor(0, templates.combinationCount());
+        }
+        return cursor.next(out, 0);
+    }
+
+    @Benchmark
+    public int generateAndRender() {
+        List<InflectedWord> sentence = generator.generateSentence(5);
+        buffer.clear();
+        writer.render(sentence, buffer);
+        return buffer.position();
+    }
+}
@@ -0,0 +1,47 @@
+package jsentance.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import jsentance.JSentance;
+import jsentance.project.generationManager.SentenceGenerator;
+import jsentance.project.wordManager.Word;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Построение встроенного словаря и индекса генератора
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class VocabularyBenchmark {
+
+    private List<Word> vocabulary;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        vocabulary = JSentance.createVocabulary();
+    }
+
+    @Benchmark
+    public List<Word> createVocabulary() {
+        return JSentance.createVocabulary();
+    }
+
+    @Benchmark
+    public SentenceGenerator buildGenerator() {
+        return new SentenceGenerator(vocabulary);
+    }
+}
@@ -0,0 +1,79 @@
+package jsentance.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import jsentance.JSentance;
+import jsentance.project.generationManager.SentenceGenerator;
+import jsentance.project.generationManager.VocabularyUpdate;
+import jsentance.project.wordManager.Lexeme;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Изменение словаря пакетом (updateVocabulary) против полной перестройки (setLexemes)
+ * в зависимости от размера словаря и размера пакета
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class VocabularyUpdateBenchmark {
+
+    /** Во сколько раз размножить встроенный словарь (547 слов) */
+    @Param({"1", "100", "400"})
+    public int vocabularyScale;
+
+    /** Сколько лексем удаляется и столько же добавляется */
+    @Param({"10", "1000"})
+    public int delta;
+
+    private List<Lexeme> lexemes;
+    private SentenceGenerator generator;
+    private VocabularyUpdate update;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        if (lexemes == null) {
+            List<Lexeme> base = Lexeme.fromWords(JSentance.createVocabulary());
+            lexemes = new ArrayList<>(base.size() * vocabularyScale);
+            for (int i = 0; i < vocabularyScale; i++) {
+                for (Lexeme word : base) {
+                    lexemes.add(word.withFrequency(1));
+                }
+            }
+        }
+        generator = SentenceGenerator.fromLexemes(lexemes);
+        SplittableRandom random = new SplittableRandom(42);
+        update = new VocabularyUpdate();
+        for (int i = 0; i < delta; i++) {
+            Lexeme word = lexemes.get(random.nextInt(lexemes.size()));
+            update.replace(word, word.withFrequency(2));
+        }
+    }
+
+    @Benchmark
+    public SentenceGenerator updateVocabulary() {
+        generator.updateVocabulary(update);
+        return generator;
+    }
+
+    @Benchmark
+    public SentenceGenerator rebuildVocabulary() {
+        generator.setLexemes(lexemes);
+        return generator;
+    }
+}
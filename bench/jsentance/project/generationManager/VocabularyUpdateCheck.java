@@ -0,0 +1,146 @@
+package jsentance.project.generationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import jsentance.JSentance;
+import jsentance.project.wordManager.Declension;
+import jsentance.project.wordManager.Genus;
+import jsentance.project.wordManager.Lexeme;
+import jsentance.project.wordManager.PartOfSpeech;
+
+/**
+ * Проверка правки индекса и таблицы согласования (WordIndex.update, AgreementTable.update):
+ * после rounds (по умолчанию 100) пакетов удалений и добавлений каждая корзина должна совпадать по составу и весам
+ * с построенной заново по итоговому словарю, а корзины - не дробиться
+ * (сегментов не больше 2 * size / SEGMENT_SIZE + 1).
+ *
+ * Порядок вариантов не сравнивается: build раскладывает слова с конца корзины, правка дописывает
+ * в конец, а вероятность выбора от порядка не зависит.
+ *
+ * Лежит в пакете генератора, потому что индекс и таблица согласования пакетные.
+ * Запуск после ant bench-compile:
+ *
+ *     java -cp build/classes:build/bench/classes jsentance.project.generationManager.VocabularyUpdateCheck [размножение] [seed] [пакетов]
+ */
+public final class VocabularyUpdateCheck {
+    private static final int DELTA = 300;
+
+    private static int patchedSegments; //сегментов во всех правленых корзинах
+    private static int rebuiltSegments; //сегментов во всех построенных заново корзинах
+
+    private VocabularyUpdateCheck() {
+    }
+
+    public static void main(String[] args) {
+        int scale = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : 42;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        SplittableRandom random = new SplittableRandom(seed);
+
+        List<Lexeme> base = Lexeme.fromWords(JSentance.createVocabulary());
+        List<Lexeme> words = new ArrayList<>(base.size() * scale);
+        for (int i = 0; i < scale; i++) {
+            for (Lexeme word : base) {
+                words.add(word.withFrequency(2 + random.nextInt(5)));
+            }
+        }
+        WordIndex index = WordIndex.build(words);
+        AgreementTable agreement = AgreementTable.build(index, PartOfSpeech.ADJECTIVE);
+
+        for (int round = 0; round < rounds; round++) {
+            Set<Lexeme> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+            while (removed.size() < Math.min(DELTA, words.size())) {
+                removed.add(words.get(random.nextInt(words.size())));
+            }
+            List<Lexeme> added = new ArrayList<>(DELTA);
+            for (int i = 0; i < DELTA; i++) {
+                added.add(base.get(random.nextInt(base.size())).withFrequency(2 + random.nextInt(5)));
+            }
+            index = index.update(added, removed);
+            agreement = agreement.update(index, PartOfSpeech.ADJECTIVE, added, removed);
+            words.removeIf(removed::contains);
+            words.addAll(added);
+        }
+
+        WordIndex rebuilt = WordIndex.build(words);
+        AgreementTable rebuiltAgreement = AgreementTable.build(rebuilt, PartOfSpeech.ADJECTIVE);
+        List<String> errors = new ArrayList<>();
+        compareIndex(index, rebuilt, errors);
+        compareAgreement(agreement, rebuiltAgreement, errors);
+
+        System.out.println("Слов: " + words.size() + ", пакетов: " + rounds + " по " + DELTA
+            + " удалений и добавлений, seed " + seed);
+        System.out.println("Сегментов: " + patchedSegments + " после правок, " + rebuiltSegments + " при построении");
+        if (errors.isEmpty()) {
+            System.out.println("Правленые индекс и таблица согласования совпадают с построенными заново");
+        } else {
+            errors.stream().limit(20).forEach(System.out::println);
+            System.out.println("Расхождений: " + errors.size());
+            System.exit(1);
+        }
+    }
+
+    private static void compareIndex(WordIndex patched, WordIndex rebuilt, List<String> errors) {
+        if (patched.size() != rebuilt.size()) {
+            errors.add("Размер индекса: " + patched.size() + " против " + rebuilt.size());
+        }
+        for (PartOfSpeech pos : PartOfSpeech.values()) {
+            compare(pos + "", patched.get(pos), rebuilt.get(pos), errors);
+            for (Genus genus : Genus.values()) {
+                compare(pos + " " + genus, patched.get(pos, genus), rebuilt.get(pos, genus), errors);
+                for (Declension d : Declension.values()) {
+                    compare(pos + " " + genus + " " + d, patched.get(pos, genus, d), rebuilt.get(pos, genus, d),
+                            errors);
+                }
+            }
+            for (Declension d : Declension.values()) {
+                compare(pos + " " + d, patched.get(pos, d), rebuilt.get(pos, d), errors);
+                compare(pos + " мн. " + d, patched.getPlural(pos, d), rebuilt.getPlural(pos, d), errors);
+            }
+        }
+    }
+
+    private static void compareAgreement(AgreementTable patched, AgreementTable rebuilt, List<String> errors) {
+        for (Genus genus : Genus.values()) {
+            for (Declension d : Declension.values()) {
+                compare("согласование " + genus + " " + d, patched.get(genus, d), rebuilt.get(genus, d), errors);
+            }
+        }
+    }
+
+    private static void compare(String name, Bucket<?> patched, Bucket<?> rebuilt, List<String> errors) {
+        List<String> left = entries(patched);
+        List<String> right = entries(rebuilt);
+        Collections.sort(left);
+        Collections.sort(right);
+        if (!left.equals(right)) {
+            errors.add(name + ": состав корзины отличается (" + left.size() + " против " + right.size() + ")");
+        }
+        patchedSegments += patched.segmentCount();
+        rebuiltSegments += rebuilt.segmentCount();
+        int limit = 2 * patched.size() / Bucket.SEGMENT_SIZE + 1;
+        if (patched.segmentCount() > limit) {
+            errors.add(name + ": " + patched.segmentCount() + " сегментов на " + patched.size()
+                + " вариантов (не больше " + limit + ")");
+        }
+    }
+
+    /**
+     * Варианты корзины с весами; лексема - по ссылке, готовая форма - по слову и значению
+     */
+    private static List<String> entries(Bucket<?> bucket) {
+        List<String> entries = new ArrayList<>(bucket.size());
+        for (int i = 0; i < bucket.size(); i++) {
+            Object item = bucket.get(i);
+            String entry = item instanceof InflectedWord form
+                ? System.identityHashCode(form.source) + " " + form.value + " " + form.plural
+                : String.valueOf(System.identityHashCode(item));
+            entries.add(entry + " " + bucket.weight(i));
+        }
+        return entries;
+    }
+}
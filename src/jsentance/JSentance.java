@@ -1,8 +1,12 @@
 package jsentance;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import jsentance.project.generationManager.InflectedWord;
 import jsentance.project.generationManager.SentenceGenerator;
+import jsentance.project.lexiconManager.MappedLexicon;
 import jsentance.project.wordManager.Genus;
 import jsentance.project.wordManager.PartOfSpeech;
 import jsentance.project.wordManager.Word;
@@ -13,13 +17,21 @@ import jsentance.project.wordManager.Word;
  */
 public class JSentance {
 
-    public static void main(String[] args) {
-        // 1. СОЗДАЕМ ОГРОМНЫЙ СЛОВАРЬ
-        List<Word> vocabulary = createVocabulary();
-        System.out.println("Загружено слов: " + vocabulary.size());
-        
-        // 2. СОЗДАЕМ ГЕНЕРАТОР
-        SentenceGenerator generator = new SentenceGenerator(vocabulary);
+    public static void main(String[] args) throws IOException {
+        SentenceGenerator generator;
+        if (args.length > 0) {
+            // 1-2. ОТКРЫВАЕМ СКОМПИЛИРОВАННЫЙ СЛОВАРЬ (см. LexiconCompiler) И СОЗДАЕМ ГЕНЕРАТОР
+            MappedLexicon lexicon = MappedLexicon.open(Path.of(args[0]));
+            System.out.println("Загружено слов: " + lexicon.size());
+            generator = SentenceGenerator.fromLexemes(lexicon.toLexemes());
+        } else {
+            // 1. СОЗДАЕМ ОГРОМНЫЙ СЛОВАРЬ
+            List<Word> vocabulary = createVocabulary();
+            System.out.println("Загружено слов: " + vocabulary.size());
+            
+            // 2. СОЗДАЕМ ГЕНЕРАТОР
+            generator = new SentenceGenerator(vocabulary);
+        }
         
         // 3. ГЕНЕРИРУЕМ МАКСИМАЛЬНО ДЛИННЫЕ ПРЕДЛОЖЕНИЯ
         System.out.println("==========================================");
@@ -28,7 +40,7 @@ public class JSentance {
         
         // Генерируем 10 предложений разной длины (до 1000 слов)
         for (int i = 1; i <= 10; i++) {
-            List<Word> sentence = generator.generateSentence(1000);
+            List<InflectedWord> sentence = generator.generateSentence(1000);
             System.out.println(i + ". " + generator.sentenceToString(sentence));
         }
         
@@ -37,7 +49,7 @@ public class JSentance {
         System.out.println("==========================================");
     }
     
-    private static List<Word> createVocabulary() {
+    public static List<Word> createVocabulary() {
         List<Word> words = new ArrayList<>();
         
         // СУЩЕСТВИТЕЛЬНЫЕ (150+ штук)
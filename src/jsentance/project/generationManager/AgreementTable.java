@@ -0,0 +1,204 @@
+package jsentance.project.generationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.random.RandomGenerator;
+import jsentance.project.wordManager.Declension;
+import jsentance.project.wordManager.Genus;
+import jsentance.project.wordManager.Lexeme;
+import jsentance.project.wordManager.PartOfSpeech;
+
+/**
+ * Таблица согласования: для каждого рода (включая PLURAL - множественное число) и падежа
+ * заранее собраны готовые формы слов части речи, которые с ними согласуются.
+ * Строится вместе с индексом, после чего согласованное слово - одно обращение к массиву
+ * без фильтрации и без создания новых объектов.
+ *
+ * Во множественном числе формы не зависят от рода, поэтому одна и та же форма
+ * (красные от красный/красная/красное) выбирается с суммарной частотой всех своих слов.
+ * Каждая форма в строке хранит свое слово (ключ строки), поэтому при изменении словаря строки
+ * не пересобираются, а правятся так же, как корзины индекса (Bucket.with): формы удаленных
+ * слов убираются, формы добавленных дописываются в конец. Новые формы создаются только
+ * для добавленных слов.
+ *
+ * Для ленивой лексемы (Lexeme.isLazy) строка хранит форму без значения (value == null):
+ * есть ли форма, известно по парадигме, а сама строка собирается через FormCache
+ * только при выборе (pick, inflected). Иначе таблица держала бы все формы прилагательных
+ * словаря и кэш форм терял бы смысл.
+ */
+final class AgreementTable {
+    private static final int GENUS_COUNT = Genus.values().length;
+    private static final int DECLENSION_COUNT = Declension.values().length;
+
+    private final Bucket<InflectedWord>[][] forms; // [род][падеж]
+
+    private AgreementTable(Bucket<InflectedWord>[][] forms) {
+        this.forms = forms;
+    }
+
+    /**
+     * Построить таблицу для части речи по готовому индексу
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static AgreementTable build(WordIndex index, PartOfSpeech pos) {
+        Bucket<InflectedWord>[][] forms = new Bucket[GENUS_COUNT][DECLENSION_COUNT];
+        for (Genus genus : Genus.values()) {
+            for (Declension d : Declension.values()) {
+                forms[genus.ordinal()][d.ordinal()] = genus == Genus.PLURAL
+                    ? pluralRow(index, pos, d) : row(index.get(pos, genus, d), d);
+            }
+        }
+        return new AgreementTable(forms);
+    }
+
+    /**
+     * Таблица по новому индексу, из которого удалены слова removed (по ссылке) и в который
+     * добавлены слова added: правятся только строки, в которые эти слова попадают
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    AgreementTable update(WordIndex index, PartOfSpeech pos, Collection<Lexeme> added, Set<Lexeme> removed) {
+        Set<Lexeme>[] removes = new Set[GENUS_COUNT];
+        List<InflectedWord>[][] adds = new List[GENUS_COUNT][DECLENSION_COUNT];
+        int plural = Genus.PLURAL.ordinal();
+        for (Lexeme word : removed) {
+            if (word.partOfSpeech() == pos) {
+                addRemoved(removes, word.genus().ordinal(), word);
+                addRemoved(removes, plural, word);
+            }
+        }
+        // Порядок добавления тот же, что в корзинах индекса
+        for (Lexeme word : added) {
+            if (word.partOfSpeech() != pos) {
+                continue;
+            }
+            for (Declension d : Declension.values()) {
+                if (word.genus() != Genus.PLURAL && word.hasDeclension(d)) {
+                    addForm(adds, word.genus().ordinal(), d, form(word, d));
+                }
+                InflectedWord pluralForm = pluralForm(word, d);
+                if (pluralForm != null) {
+                    addForm(adds, plural, d, pluralForm);
+                }
+            }
+        }
+
+        Bucket<InflectedWord>[][] next = forms.clone();
+        for (int g = 0; g < GENUS_COUNT; g++) {
+            for (int d = 0; d < DECLENSION_COUNT; d++) {
+                if (removes[g] == null && adds[g][d] == null) {
+                    continue;
+                }
+                if (next[g] == forms[g]) {
+                    next[g] = forms[g].clone();
+                }
+                next[g][d] = forms[g][d].with(adds[g][d] != null ? adds[g][d] : List.of(),
+                                              form -> form.source.frequency(),
+                                              removes[g] != null ? removes[g] : Set.of(),
+                                              form -> form.source);
+            }
+        }
+        return new AgreementTable(next);
+    }
+
+    private static void addRemoved(Set<Lexeme>[] removes, int genus, Lexeme word) {
+        if (removes[genus] == null) {
+            removes[genus] = Collections.newSetFromMap(new IdentityHashMap<>());
+        }
+        removes[genus].add(word);
+    }
+
+    private static void addForm(List<InflectedWord>[][] adds, int genus, Declension d, InflectedWord form) {
+        if (adds[genus][d.ordinal()] == null) {
+            adds[genus][d.ordinal()] = new ArrayList<>();
+        }
+        adds[genus][d.ordinal()].add(form);
+    }
+
+    /**
+     * Готовые формы слов корзины в падеже; ключ формы - ее слово
+     */
+    private static Bucket<InflectedWord> row(Bucket<Lexeme> words, Declension d) {
+        InflectedWord[] row = new InflectedWord[words.size()];
+        double[] weights = new double[row.length];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = form(words.get(i), d);
+            weights[i] = row[i].source.frequency();
+        }
+        return Bucket.of(row, weights, form -> form.source);
+    }
+
+    private static InflectedWord form(Lexeme word, Declension d) {
+        return new InflectedWord(word, word.isLazy() ? null : word.declension(d), d, null, false,
+                                 word.declensionId(d));
+    }
+
+    /**
+     * Формы множественного числа: слов с формой мн. числа в падеже,
+     * затем слов словаря, которые сами по себе во множественном числе
+     */
+    private static Bucket<InflectedWord> pluralRow(WordIndex index, PartOfSpeech pos, Declension d) {
+        List<InflectedWord> row = new ArrayList<>();
+        Bucket<Lexeme> words = index.getPlural(pos, d);
+        for (int i = 0; i < words.size(); i++) {
+            if (words.get(i).genus() != Genus.PLURAL) {
+                row.add(pluralForm(words.get(i), d));
+            }
+        }
+        words = index.get(pos, Genus.PLURAL, d);
+        for (int i = 0; i < words.size(); i++) {
+            row.add(pluralForm(words.get(i), d));
+        }
+        double[] weights = new double[row.size()];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = row.get(i).source.frequency();
+        }
+        return Bucket.of(row.toArray(new InflectedWord[0]), weights, form -> form.source);
+    }
+
+    /**
+     * Форма множественного числа слова в падеже (null, если ее нет)
+     */
+    private static InflectedWord pluralForm(Lexeme word, Declension d) {
+        if (word.genus() == Genus.PLURAL) {
+            return word.hasDeclension(d)
+                ? new InflectedWord(word, word.isLazy() ? null : word.declension(d), d, null, true,
+                                    word.declensionId(d))
+                : null;
+        }
+        return word.hasPlural(d)
+            ? new InflectedWord(word, word.isLazy() ? null : word.plural(d), d, null, true, word.pluralId(d))
+            : null;
+    }
+
+    /**
+     * Формы, согласованные с родом (PLURAL - со множественным числом) в падеже;
+     * формы ленивых лексем в строке без значения - см. inflected
+     */
+    Bucket<InflectedWord> get(Genus genus, Declension declension) {
+        return forms[genus.ordinal()][declension.ordinal()];
+    }
+
+    /**
+     * Случайная согласованная форма (null, если согласованных нет)
+     */
+    InflectedWord pick(Genus genus, Declension declension, RandomGenerator random) {
+        return inflected(get(genus, declension).pick(random));
+    }
+
+    /**
+     * Форма строки со значением: форма ленивой лексемы собирается сейчас
+     */
+    static InflectedWord inflected(InflectedWord form) {
+        if (form == null || form.value != null) {
+            return form;
+        }
+        Lexeme word = form.source;
+        String value = form.plural && word.genus() != Genus.PLURAL
+            ? word.plural(form.declension) : word.declension(form.declension);
+        return new InflectedWord(word, value, form.declension, null, form.plural, form.formId);
+    }
+}
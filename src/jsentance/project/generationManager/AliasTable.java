@@ -0,0 +1,100 @@
+package jsentance.project.generationManager;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Таблица псевдонимов (метод Воуза) для выбора номера с заданными весами за O(1):
+ * одно случайное число для столбца и одно для выбора между ним и его псевдонимом.
+ * Неизменяема, поэтому может использоваться из разных потоков.
+ */
+final class AliasTable {
+    private final double[] probability;
+    private final int[] alias;
+
+    AliasTable(double[] weights) {
+        int n = weights.length;
+        if (n == 0) {
+            throw new IllegalArgumentException("Пустой список весов");
+        }
+        double sum = 0;
+        for (double w : weights) {
+            if (!(w >= 0) || Double.isInfinite(w)) {
+                throw new IllegalArgumentException("Недопустимый вес: " + w);
+            }
+            sum += w;
+        }
+        if (sum <= 0) {
+            throw new IllegalArgumentException("Сумма весов должна быть больше нуля");
+        }
+
+        probability = new double[n];
+        alias = new int[n];
+
+        // Нормируем так, чтобы средний вес был равен 1, и делим столбцы на малые и большие
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / sum;
+            if (scaled[i] < 1) {
+                small[smallCount++] = i;
+            } else {
+                large[largeCount++] = i;
+            }
+        }
+
+        // Каждый малый столбец дополняем долей большого
+        while (smallCount > 0 && largeCount > 0) {
+            int s = small[--smallCount];
+            int l = large[--largeCount];
+            probability[s] = scaled[s];
+            alias[s] = l;
+            scaled[l] = scaled[l] + scaled[s] - 1;
+            if (scaled[l] < 1) {
+                small[smallCount++] = l;
+            } else {
+                large[largeCount++] = l;
+            }
+        }
+        // Остатки (из-за погрешности округления) заполнены целиком
+        while (largeCount > 0) {
+            probability[large[--largeCount]] = 1;
+        }
+        while (smallCount > 0) {
+            probability[small[--smallCount]] = 1;
+        }
+    }
+
+    /**
+     * Количество вариантов
+     */
+    int size() {
+        return probability.length;
+    }
+
+    /**
+     * Выбрать номер варианта с вероятностью, пропорциональной его весу
+     */
+    int sample(RandomGenerator random) {
+        int i = random.nextInt(probability.length);
+        return random.nextDouble() < probability[i] ? i : alias[i];
+    }
+
+    /**
+     * То же по одному случайному long: старшие 32 бита выбирают столбец, младшие - между
+     * ним и псевдонимом (точность 2^-32 против 2^-53 у sample, зато одно обращение к генератору)
+     */
+    int sample(long bits) {
+        int i = column(bits, probability.length);
+        return (bits & 0xFFFFFFFFL) * 0x1.0p-32 < probability[i] ? i : alias[i];
+    }
+
+    /**
+     * Равномерный номер от 0 до n - 1 по старшим 32 битам (умножение вместо деления)
+     */
+    static int column(long bits, int n) {
+        return (int) (((bits >>> 32) * n) >>> 32);
+    }
+}
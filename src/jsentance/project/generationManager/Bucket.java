@@ -0,0 +1,333 @@
+package jsentance.project.generationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.random.RandomGenerator;
+
+/**
+ * Неизменяемая корзина вариантов для случайного выбора.
+ * Если веса вариантов различаются, выбор идет таблицей псевдонимов (O(1) при любом размере),
+ * если все веса равны - обычным nextInt, как и без весов.
+ * Может использоваться из разных потоков.
+ *
+ * Варианты хранятся сегментами по SEGMENT_SIZE со своей таблицей псевдонимов,
+ * а сегмент выбирается по накопленным весам. Изменение корзины (with) пересобирает
+ * только затронутые сегменты, остальные новая корзина делит со старой.
+ *
+ * Каждый сегмент хранит отсортированные identityHashCode ключей своих вариантов
+ * (ключ - сам вариант или, например, исходное слово готовой формы), поэтому при удалении
+ * сегмент без удаляемых ключей отсеивается двоичным поиском, без просмотра вариантов.
+ * Удаление стоит O(сегментов * удаляемых * log SEGMENT_SIZE) плюс пересборка затронутых сегментов.
+ *
+ * Чтобы корзина не дробилась после многих изменений, with сливает соседние сегменты,
+ * если они вместе помещаются в SEGMENT_SIZE и хотя бы один из них меньше половины сегмента.
+ * Поэтому сегментов не больше 2 * size / SEGMENT_SIZE + 1, как бы корзина ни менялась.
+ */
+final class Bucket<T> {
+    static final int SEGMENT_SIZE = 1024;
+
+    private static final Bucket<?> EMPTY = new Bucket<>(new Segment[0]);
+    private static final Function<Object, Object> SELF = item -> item;
+
+    private final Segment[] segments;
+    private final int[] offsets;        // номер первого варианта каждого сегмента
+    private final double[] cumulative;  // накопленные веса сегментов
+    private final int size;
+
+    private Bucket(Segment[] segments) {
+        this.segments = segments;
+        this.offsets = new int[segments.length];
+        this.cumulative = new double[segments.length];
+        int size = 0;
+        double total = 0;
+        for (int i = 0; i < segments.length; i++) {
+            offsets[i] = size;
+            size += segments[i].items.length;
+            total += segments[i].total;
+            cumulative[i] = total;
+        }
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> Bucket<T> empty() {
+        return (Bucket<T>) EMPTY;
+    }
+
+    /**
+     * Корзина из вариантов с весами weight(вариант)
+     */
+    static <T> Bucket<T> of(T[] items, ToDoubleFunction<? super T> weight) {
+        return of(items, weights(Arrays.asList(items), weight));
+    }
+
+    /**
+     * Корзина из вариантов с заданными весами (weights[i] - вес items[i])
+     */
+    static <T> Bucket<T> of(T[] items, double[] weights) {
+        return of(items, weights, SELF);
+    }
+
+    /**
+     * Корзина из вариантов с заданными весами; key - ключ варианта для удаления в with
+     */
+    static <T> Bucket<T> of(T[] items, double[] weights, Function<? super T, ?> key) {
+        if (items.length != weights.length) {
+            throw new IllegalArgumentException("Число весов не совпадает с числом вариантов");
+        }
+        if (items.length == 0) {
+            return empty();
+        }
+        List<Segment> segments = new ArrayList<>();
+        appendSegments(segments, items, weights, key(key));
+        return new Bucket<>(segments.toArray(new Segment[0]));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, ?> key(Function<?, ?> key) {
+        return (Function<Object, ?>) key;
+    }
+
+    /**
+     * Новая корзина: без вариантов removed (сравнение по ссылке) и с вариантами added в конце.
+     * Пересобираются только сегменты, из которых что-то удалено (вместе с мелкими соседями,
+     * с которыми они сливаются), и последний сегмент, в который дописываются новые варианты.
+     * Отсутствующие в корзине removed пропускаются.
+     */
+    Bucket<T> with(Collection<? extends T> added, ToDoubleFunction<? super T> weight, Set<?> removed) {
+        return with(added, weight, removed, SELF);
+    }
+
+    /**
+     * То же, но удаляются варианты, ключ которых (key, как при создании корзины) есть в removed;
+     * removed должно сравнивать по ссылке
+     */
+    Bucket<T> with(Collection<? extends T> added, ToDoubleFunction<? super T> weight, Set<?> removed,
+                   Function<? super T, ?> key) {
+        Function<Object, ?> keyOf = key(key);
+        int[] removedKeys = new int[removed.size()];
+        int r = 0;
+        for (Object item : removed) {
+            removedKeys[r++] = System.identityHashCode(item);
+        }
+        List<Segment> kept = new ArrayList<>(segments.length + 1);
+        for (Segment segment : segments) {
+            Segment rest = removed.isEmpty() ? segment : segment.without(removedKeys, removed, keyOf);
+            if (rest != null) {
+                kept.add(rest);
+            }
+        }
+        List<Segment> result = removed.isEmpty() ? kept : merged(kept, keyOf);
+
+        if (!added.isEmpty()) {
+            Object[] items = added.toArray();
+            double[] weights = weights(added, weight);
+            int last = result.size() - 1;
+            if (last >= 0 && result.get(last).items.length < SEGMENT_SIZE) {
+                // Дописываем в последний неполный сегмент, остальное - новыми сегментами
+                Segment tail = result.remove(last);
+                Object[] joined = Arrays.copyOf(tail.items, tail.items.length + items.length);
+                System.arraycopy(items, 0, joined, tail.items.length, items.length);
+                double[] joinedWeights = Arrays.copyOf(tail.weights, joined.length);
+                System.arraycopy(weights, 0, joinedWeights, tail.weights.length, weights.length);
+                items = joined;
+                weights = joinedWeights;
+            }
+            appendSegments(result, items, weights, keyOf);
+        }
+
+        if (result.isEmpty()) {
+            return empty();
+        }
+        return new Bucket<>(result.toArray(new Segment[0]));
+    }
+
+    /**
+     * Слить подряд идущие сегменты, пока они помещаются в SEGMENT_SIZE и текущий
+     * или следующий меньше половины сегмента; остальные сегменты берутся как есть
+     */
+    private static List<Segment> merged(List<Segment> segments, Function<Object, ?> key) {
+        List<Segment> result = new ArrayList<>(segments.size() + 1);
+        for (int start = 0; start < segments.size(); ) {
+            int length = segments.get(start).items.length;
+            int end = start + 1;
+            while (end < segments.size()) {
+                int next = segments.get(end).items.length;
+                if (length + next > SEGMENT_SIZE || (length >= SEGMENT_SIZE / 2 && next >= SEGMENT_SIZE / 2)) {
+                    break;
+                }
+                length += next;
+                end++;
+            }
+            if (end == start + 1) {
+                result.add(segments.get(start));
+            } else {
+                Object[] items = new Object[length];
+                double[] weights = new double[length];
+                int offset = 0;
+                for (Segment segment : segments.subList(start, end)) {
+                    System.arraycopy(segment.items, 0, items, offset, segment.items.length);
+                    System.arraycopy(segment.weights, 0, weights, offset, segment.weights.length);
+                    offset += segment.items.length;
+                }
+                result.add(new Segment(items, weights, key));
+            }
+            start = end;
+        }
+        return result;
+    }
+
+    private static <T> double[] weights(Collection<? extends T> items, ToDoubleFunction<? super T> weight) {
+        double[] weights = new double[items.size()];
+        int i = 0;
+        for (T item : items) {
+            weights[i++] = weight.applyAsDouble(item);
+        }
+        return weights;
+    }
+
+    private static void appendSegments(List<Segment> segments, Object[] items, double[] weights,
+                                       Function<Object, ?> key) {
+        for (int start = 0; start < items.length; start += SEGMENT_SIZE) {
+            int end = Math.min(items.length, start + SEGMENT_SIZE);
+            segments.add(new Segment(Arrays.copyOfRange(items, start, end), Arrays.copyOfRange(weights, start, end), key));
+        }
+    }
+
+    /**
+     * Выбрать вариант с вероятностью, пропорциональной весу (null, если корзина пуста)
+     */
+    @SuppressWarnings("unchecked")
+    T pick(RandomGenerator random) {
+        switch (segments.length) {
+            case 0:
+                return null;
+            case 1:
+                return (T) segments[0].pick(random);
+            default:
+                double r = random.nextDouble() * cumulative[cumulative.length - 1];
+                int i = Arrays.binarySearch(cumulative, r);
+                i = i >= 0 ? i + 1 : -i - 1;
+                return (T) segments[Math.min(i, segments.length - 1)].pick(random);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    T get(int i) {
+        if (segments.length == 1) {
+            return (T) segments[0].items[i];
+        }
+        int s = Arrays.binarySearch(offsets, i);
+        s = s >= 0 ? s : -s - 2;
+        return (T) segments[s].items[i - offsets[s]];
+    }
+
+    /**
+     * Вес варианта номер i
+     */
+    double weight(int i) {
+        if (segments.length == 1) {
+            return segments[0].weights[i];
+        }
+        int s = Arrays.binarySearch(offsets, i);
+        s = s >= 0 ? s : -s - 2;
+        return segments[s].weights[i - offsets[s]];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Количество сегментов (для проверки того, что корзина не дробится)
+     */
+    int segmentCount() {
+        return segments.length;
+    }
+
+    /**
+     * Выбор идет по весам, а не равновероятно
+     */
+    boolean isWeighted() {
+        for (Segment segment : segments) {
+            if (segment.sampler != null || segment.weights[0] != segments[0].weights[0]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Сегмент корзины: варианты, их веса и таблица псевдонимов
+     */
+    private static final class Segment {
+        final Object[] items;
+        final double[] weights;
+        final AliasTable sampler; //null - все варианты сегмента равновероятны
+        final double total;
+        final int[] keys; //identityHashCode ключей вариантов по возрастанию
+
+        Segment(Object[] items, double[] weights, Function<Object, ?> key) {
+            this.items = items;
+            this.weights = weights;
+            boolean uniform = true;
+            double total = 0;
+            for (double w : weights) {
+                uniform &= w == weights[0];
+                total += w;
+            }
+            this.sampler = uniform ? null : new AliasTable(weights);
+            this.total = total;
+            this.keys = new int[items.length];
+            for (int i = 0; i < items.length; i++) {
+                keys[i] = System.identityHashCode(key.apply(items[i]));
+            }
+            Arrays.sort(keys);
+        }
+
+        Object pick(RandomGenerator random) {
+            return items[sampler == null ? random.nextInt(items.length) : sampler.sample(random)];
+        }
+
+        /**
+         * Сегмент без вариантов с ключами из removed (removedKeys - их identityHashCode);
+         * этот же сегмент, если удалять нечего, и null, если не осталось ничего
+         */
+        Segment without(int[] removedKeys, Set<?> removed, Function<Object, ?> key) {
+            boolean touched = false;
+            for (int i = 0; i < removedKeys.length && !touched; i++) {
+                touched = Arrays.binarySearch(keys, removedKeys[i]) >= 0;
+            }
+            if (!touched) {
+                return this;
+            }
+            int kept = 0;
+            for (Object item : items) {
+                if (!removed.contains(key.apply(item))) {
+                    kept++;
+                }
+            }
+            if (kept == items.length) {
+                return this;
+            }
+            if (kept == 0) {
+                return null;
+            }
+            Object[] keptItems = new Object[kept];
+            double[] keptWeights = new double[kept];
+            int j = 0;
+            for (int i = 0; i < items.length; i++) {
+                if (!removed.contains(key.apply(items[i]))) {
+                    keptItems[j] = items[i];
+                    keptWeights[j++] = weights[i];
+                }
+            }
+            return new Segment(keptItems, keptWeights, key);
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package jsentance.project.generationManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Метрики генератора: счетчики (LongAdder) переходов, отказов и запасных путей выбора слов,
+ * гистограммы длины предложений, задержки генерации и времени построения индекса.
+ *
+ * Включаются по желанию: SentenceGenerator.setMetrics(new GenerationMetrics()).
+ * Без метрик генерация платит одной проверкой на null за предложение.
+ * Метрики можно выгрузить текстом (report) и зарегистрировать в JMX (register).
+ * Один объект метрик можно разделить между несколькими генераторами.
+ */
+public final class GenerationMetrics implements GenerationMetricsMXBean {
+    private static final double NANOS_PER_MICRO = 1e3;
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    private final LongAdder sentences = new LongAdder();
+    private final LongAdder words = new LongAdder();
+    private final LongAdder transitions = new LongAdder();
+    private final LongAdder emptyTransitions = new LongAdder();
+    private final LongAdder numberRejections = new LongAdder();
+    private final LongAdder duplicateRejections = new LongAdder();
+    private final LongAdder truncatedSentences = new LongAdder();
+    private final LongAdder genusFallbacks = new LongAdder();
+    private final LongAdder formFallbacks = new LongAdder();
+    private final LongAdder pluralFallbacks = new LongAdder();
+    private final LongAdder indexRebuilds = new LongAdder();
+    private final LongAdder indexUpdates = new LongAdder();
+
+    private final Histogram sentenceLength = new Histogram();
+    private final Histogram latency = new Histogram(); //нс
+    private final Histogram indexBuildTime = new Histogram(); //нс
+
+    /**
+     * Итог одного предложения; счетчики внутри предложения ведутся в локальных переменных
+     */
+    void recordSentence(int length, int steps, int empty, int numberRejected, int duplicates,
+                        boolean truncated, long nanos) {
+        sentences.increment();
+        words.add(length);
+        transitions.add(steps);
+        if (empty != 0) {
+            emptyTransitions.add(empty);
+        }
+        if (numberRejected != 0) {
+            numberRejections.add(numberRejected);
+        }
+        if (duplicates != 0) {
+            duplicateRejections.add(duplicates);
+        }
+        if (truncated) {
+            truncatedSentences.increment();
+        }
+        sentenceLength.record(length);
+        latency.record(nanos);
+    }
+
+    void genusFallback() {
+        genusFallbacks.increment();
+    }
+
+    void formFallback() {
+        formFallbacks.increment();
+    }
+
+    void pluralFallback() {
+        pluralFallbacks.increment();
+    }
+
+    /**
+     * Построение индекса: полное (rebuild) или пакетом изменений
+     */
+    void recordIndexBuild(boolean rebuild, long nanos) {
+        (rebuild ? indexRebuilds : indexUpdates).increment();
+        indexBuildTime.record(nanos);
+    }
+
+    @Override
+    public long getSentences() {
+        return sentences.sum();
+    }
+
+    @Override
+    public long getWords() {
+        return words.sum();
+    }
+
+    @Override
+    public long getTransitions() {
+        return transitions.sum();
+    }
+
+    @Override
+    public long getEmptyTransitions() {
+        return emptyTransitions.sum();
+    }
+
+    @Override
+    public long getNumberRejections() {
+        return numberRejections.sum();
+    }
+
+    @Override
+    public long getDuplicateRejections() {
+        return duplicateRejections.sum();
+    }
+
+    @Override
+    public long getTruncatedSentences() {
+        return truncatedSentences.sum();
+    }
+
+    @Override
+    public long getGenusFallbacks() {
+        return genusFallbacks.sum();
+    }
+
+    @Override
+    public long getFormFallbacks() {
+        return formFallbacks.sum();
+    }
+
+    @Override
+    public long getPluralFallbacks() {
+        return pluralFallbacks.sum();
+    }
+
+    @Override
+    public long getIndexRebuilds() {
+        return indexRebuilds.sum();
+    }
+
+    @Override
+    public long getIndexUpdates() {
+        return indexUpdates.sum();
+    }
+
+    @Override
+    public double getMeanSentenceLength() {
+        return sentenceLength.mean();
+    }
+
+    @Override
+    public long getMaxSentenceLength() {
+        return sentenceLength.max();
+    }
+
+    /**
+     * Перцентиль длины предложения (0 < q <= 1)
+     */
+    public long sentenceLengthPercentile(double q) {
+        return sentenceLength.percentile(q);
+    }
+
+    /**
+     * Перцентиль задержки генерации предложения в наносекундах (0 < q <= 1)
+     */
+    public long latencyPercentileNanos(double q) {
+        return latency.percentile(q);
+    }
+
+    @Override
+    public double getMeanLatencyMicros() {
+        return latency.mean() / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getLatencyP50Micros() {
+        return latency.percentile(0.5) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getLatencyP99Micros() {
+        return latency.percentile(0.99) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getLatencyP999Micros() {
+        return latency.percentile(0.999) / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getMaxLatencyMicros() {
+        return latency.max() / NANOS_PER_MICRO;
+    }
+
+    @Override
+    public double getMeanIndexBuildMillis() {
+        return indexBuildTime.mean() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMaxIndexBuildMillis() {
+        return indexBuildTime.max() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder counter : new LongAdder[] {sentences, words, transitions, emptyTransitions,
+                numberRejections, duplicateRejections, truncatedSentences, genusFallbacks, formFallbacks,
+                pluralFallbacks, indexRebuilds, indexUpdates}) {
+            counter.reset();
+        }
+        sentenceLength.reset();
+        latency.reset();
+        indexBuildTime.reset();
+    }
+
+    /**
+     * Зарегистрировать метрики в платформенном MBeanServer
+     * под именем jsentance:type=GenerationMetrics,name=name
+     */
+    public ObjectName register(String name) {
+        try {
+            ObjectName objectName = new ObjectName("jsentance:type=GenerationMetrics,name=" + ObjectName.quote(name));
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Не удалось зарегистрировать метрики в JMX: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Выгрузить метрики текстом: по строке "имя значение"
+     */
+    public void report(Appendable out) throws IOException {
+        line(out, "sentences", getSentences());
+        line(out, "words", getWords());
+        line(out, "transitions", getTransitions());
+        line(out, "empty_transitions", getEmptyTransitions());
+        line(out, "number_rejections", getNumberRejections());
+        line(out, "duplicate_rejections", getDuplicateRejections());
+        line(out, "truncated_sentences", getTruncatedSentences());
+        line(out, "genus_fallbacks", getGenusFallbacks());
+        line(out, "form_fallbacks", getFormFallbacks());
+        line(out, "plural_fallbacks", getPluralFallbacks());
+        line(out, "index_rebuilds", getIndexRebuilds());
+        line(out, "index_updates", getIndexUpdates());
+        line(out, "sentence_length_mean", getMeanSentenceLength());
+        line(out, "sentence_length_p50", sentenceLengthPercentile(0.5));
+        line(out, "sentence_length_p99", sentenceLengthPercentile(0.99));
+        line(out, "sentence_length_max", getMaxSentenceLength());
+        line(out, "latency_us_mean", getMeanLatencyMicros());
+        line(out, "latency_us_p50", getLatencyP50Micros());
+        line(out, "latency_us_p99", getLatencyP99Micros());
+        line(out, "latency_us_p999", getLatencyP999Micros());
+        line(out, "latency_us_max", getMaxLatencyMicros());
+        line(out, "index_build_ms_mean", getMeanIndexBuildMillis());
+        line(out, "index_build_ms_max", getMaxIndexBuildMillis());
+    }
+
+    private static void line(Appendable out, String name, long value) throws IOException {
+        out.append(name).append(' ').append(Long.toString(value)).append('\n');
+    }
+
+    private static void line(Appendable out, String name, double value) throws IOException {
+        out.append(name).append(' ').append(String.format(Locale.ROOT, "%.3f", value)).append('\n');
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        try {
+            report(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,64 @@
+package jsentance.project.generationManager;
+
+/**
+ * Метрики генерации для JMX (см. GenerationMetrics.register)
+ */
+public interface GenerationMetricsMXBean {
+
+    /** Сгенерировано предложений */
+    long getSentences();
+
+    /** Сгенерировано слов */
+    long getWords();
+
+    /** Сделано переходов грамматики (итераций цикла генерации) */
+    long getTransitions();
+
+    /** Переходов, для которых не нашлось ни одного подходящего слова */
+    long getEmptyTransitions();
+
+    /** Переходов, отброшенных из-за числа (множественное при уже заданном единственном) */
+    long getNumberRejections();
+
+    /** Слов, отброшенных из-за лимита слов одной части речи */
+    long getDuplicateRejections();
+
+    /** Предложений, оборванных лимитом maxSteps или maxLength, а не концом грамматики */
+    long getTruncatedSentences();
+
+    /** Слово нужного рода не нашлось - взято слово другого рода */
+    long getGenusFallbacks();
+
+    /** Слово с нужной формой не нашлось - взято любое слово части речи */
+    long getFormFallbacks();
+
+    /** Формы множественного числа не нашлось - взята форма единственного */
+    long getPluralFallbacks();
+
+    /** Полных перестроек индекса словаря */
+    long getIndexRebuilds();
+
+    /** Изменений словаря пакетами */
+    long getIndexUpdates();
+
+    double getMeanSentenceLength();
+
+    long getMaxSentenceLength();
+
+    double getMeanLatencyMicros();
+
+    double getLatencyP50Micros();
+
+    double getLatencyP99Micros();
+
+    double getLatencyP999Micros();
+
+    double getMaxLatencyMicros();
+
+    double getMeanIndexBuildMillis();
+
+    double getMaxIndexBuildMillis();
+
+    /** Обнулить все метрики */
+    void reset();
+}
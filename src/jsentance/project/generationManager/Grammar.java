@@ -0,0 +1,323 @@
+package jsentance.project.generationManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+import jsentance.project.wordManager.Declension;
+import jsentance.project.wordManager.PartOfSpeech;
+import jsentance.project.wordManager.Time;
+
+/**
+ * Скомпилированная грамматика: взвешенный автомат, состояния которого - синтаксические позиции,
+ * а переходы добавляют слово нужной части речи (с падежом, временем и согласованием по роду).
+ * Переход из состояния выбирается таблицей псевдонимов за O(1) независимо от числа правил.
+ *
+ * Формат файла (пример - default.grammar рядом с классом):
+ * <pre>
+ * start СОСТОЯНИЕ
+ * state СОСТОЯНИЕ
+ *   вес ЧАСТЬ_РЕЧИ [ПАДЕЖ | governed] [ВРЕМЯ] [plural] [agree] -> СЛЕДУЮЩЕЕ
+ *   вес skip -> СЛЕДУЮЩЕЕ       (переход без слова)
+ *   вес stop                    (конец предложения)
+ * govern ПАДЕЖ предлог предлог ...
+ * default-govern ПАДЕЖ
+ * </pre>
+ * agree - слово согласуется по роду с предложением (первое такое слово задает род);
+ * governed - падеж берется из управления последнего предлога;
+ * plural - слово во множественном числе (вместе с agree задает число предложения;
+ * если род уже задан единственным числом, переход не выполняется).
+ * Слово с agree в предложении, где уже задано множественное число, тоже ставится во множественное.
+ */
+public final class Grammar {
+    static final int STOP = -1;
+
+    /**
+     * Переход автомата
+     */
+    static final class Transition {
+        final PartOfSpeech partOfSpeech; //часть речи слова (null - переход без слова)
+        final Declension declension; //падеж слова (null - падеж не задан)
+        final Time time; //время слова (null - время не задано)
+        final boolean governed; //падеж определяется предыдущим предлогом
+        final boolean plural; //слово во множественном числе
+        final boolean agree; //согласование по роду
+        final int next; //следующее состояние (STOP - конец предложения)
+
+        Transition(PartOfSpeech partOfSpeech, Declension declension, Time time,
+                   boolean governed, boolean plural, boolean agree, int next) {
+            this.partOfSpeech = partOfSpeech;
+            this.declension = declension;
+            this.time = time;
+            this.governed = governed;
+            this.plural = plural;
+            this.agree = agree;
+            this.next = next;
+        }
+    }
+
+    private final String[] stateNames;
+    private final Transition[][] transitions; //[состояние][переход]
+    private final AliasTable[] samplers; //[состояние]
+    private final int start;
+    private final Map<String, Declension> government;
+    private final Declension defaultGovernment;
+
+    private Grammar(String[] stateNames, Transition[][] transitions, double[][] weights, int start,
+                    Map<String, Declension> government, Declension defaultGovernment) {
+        this.stateNames = stateNames;
+        this.transitions = transitions;
+        this.samplers = new AliasTable[transitions.length];
+        for (int i = 0; i < transitions.length; i++) {
+            samplers[i] = new AliasTable(weights[i]);
+        }
+        this.start = start;
+        this.government = Map.copyOf(government);
+        this.defaultGovernment = defaultGovernment;
+    }
+
+    /**
+     * Грамматика по умолчанию (default.grammar)
+     */
+    public static Grammar defaultGrammar() {
+        return DefaultHolder.GRAMMAR;
+    }
+
+    private static final class DefaultHolder {
+        static final Grammar GRAMMAR = loadDefault();
+
+        private static Grammar loadDefault() {
+            try (InputStream in = Grammar.class.getResourceAsStream("default.grammar")) {
+                if (in == null) {
+                    throw new IOException("Не найден ресурс default.grammar");
+                }
+                return load(new InputStreamReader(in, StandardCharsets.UTF_8), "default.grammar");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Загрузить грамматику из файла
+     */
+    public static Grammar load(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return load(reader, path.toString());
+        }
+    }
+
+    /**
+     * Загрузить грамматику из потока символов
+     */
+    public static Grammar load(Reader source, String name) throws IOException {
+        BufferedReader reader = new BufferedReader(source);
+        Map<String, Integer> stateIds = new LinkedHashMap<>();
+        List<List<String[]>> rules = new ArrayList<>(); //[состояние] -> правила (+ номер строки в конце)
+        Map<String, Declension> government = new HashMap<>();
+        Declension defaultGovernment = Declension.PREPOSITIONAL;
+        String startName = null;
+        int current = -1;
+
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            String[] tokens = line.trim().split("\\s+");
+            if (tokens[0].isEmpty()) {
+                continue;
+            }
+            try {
+                switch (tokens[0]) {
+                    case "start":
+                        expectTokens(tokens, 2);
+                        startName = tokens[1];
+                        break;
+                    case "state":
+                        expectTokens(tokens, 2);
+                        current = stateId(tokens[1], stateIds, rules);
+                        break;
+                    case "govern":
+                        Declension declension = Declension.valueOf(tokens[1]);
+                        for (int i = 2; i < tokens.length; i++) {
+                            government.put(tokens[i], declension);
+                        }
+                        break;
+                    case "default-govern":
+                        expectTokens(tokens, 2);
+                        defaultGovernment = Declension.valueOf(tokens[1]);
+                        break;
+                    default:
+                        if (current < 0) {
+                            throw new IllegalArgumentException("переход вне состояния");
+                        }
+                        rules.get(current).add(withLine(tokens, lineNumber));
+                }
+            } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+                throw new IOException(name + ":" + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+
+        if (startName == null) {
+            throw new IOException(name + ": не задано начальное состояние (start)");
+        }
+        Integer start = stateIds.get(startName);
+        if (start == null) {
+            throw new IOException(name + ": неизвестное начальное состояние " + startName);
+        }
+
+        int stateCount = stateIds.size();
+        String[] stateNames = stateIds.keySet().toArray(new String[0]);
+        Transition[][] transitions = new Transition[stateCount][];
+        double[][] weights = new double[stateCount][];
+        for (int s = 0; s < stateCount; s++) {
+            List<String[]> stateRules = rules.get(s);
+            if (stateRules.isEmpty()) {
+                throw new IOException(name + ": у состояния " + stateNames[s] + " нет переходов");
+            }
+            transitions[s] = new Transition[stateRules.size()];
+            weights[s] = new double[stateRules.size()];
+            for (int r = 0; r < stateRules.size(); r++) {
+                String[] rule = stateRules.get(r);
+                String ruleLine = rule[rule.length - 1];
+                try {
+                    weights[s][r] = Double.parseDouble(rule[0]);
+                    transitions[s][r] = parseTransition(rule, stateIds);
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(name + ":" + ruleLine + ": " + e.getMessage(), e);
+                }
+            }
+            try {
+                new AliasTable(weights[s]);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(name + ": состояние " + stateNames[s] + ": " + e.getMessage(), e);
+            }
+        }
+
+        return new Grammar(stateNames, transitions, weights, start, government, defaultGovernment);
+    }
+
+    private static String[] withLine(String[] tokens, int lineNumber) {
+        String[] result = Arrays.copyOf(tokens, tokens.length + 1);
+        result[tokens.length] = Integer.toString(lineNumber);
+        return result;
+    }
+
+    private static int stateId(String state, Map<String, Integer> stateIds, List<List<String[]>> rules) {
+        Integer id = stateIds.get(state);
+        if (id == null) {
+            id = stateIds.size();
+            stateIds.put(state, id);
+            rules.add(new ArrayList<>());
+        }
+        return id;
+    }
+
+    /**
+     * Разобрать правило "вес ДЕЙСТВИЕ [модификаторы] [-> СОСТОЯНИЕ] номер_строки"
+     */
+    private static Transition parseTransition(String[] rule, Map<String, Integer> stateIds) {
+        int end = rule.length - 1; // последний элемент - номер строки
+        String action = rule[1];
+
+        if (action.equals("stop")) {
+            if (end != 2) {
+                throw new IllegalArgumentException("после stop ничего не ожидается");
+            }
+            return new Transition(null, null, null, false, false, false, STOP);
+        }
+
+        if (end < 4 || !rule[end - 2].equals("->")) {
+            throw new IllegalArgumentException("ожидалось '-> СОСТОЯНИЕ'");
+        }
+        Integer next = stateIds.get(rule[end - 1]);
+        if (next == null) {
+            throw new IllegalArgumentException("неизвестное состояние " + rule[end - 1]);
+        }
+
+        if (action.equals("skip")) {
+            if (end != 4) {
+                throw new IllegalArgumentException("у skip не бывает модификаторов");
+            }
+            return new Transition(null, null, null, false, false, false, next);
+        }
+
+        PartOfSpeech partOfSpeech = PartOfSpeech.valueOf(action);
+        Declension declension = null;
+        Time time = null;
+        boolean governed = false;
+        boolean plural = false;
+        boolean agree = false;
+        for (int i = 2; i < end - 2; i++) {
+            String modifier = rule[i];
+            if (modifier.equals("agree")) {
+                agree = true;
+            } else if (modifier.equals("governed")) {
+                governed = true;
+            } else if (modifier.equals("plural")) {
+                plural = true;
+            } else if (isDeclension(modifier)) {
+                declension = Declension.valueOf(modifier);
+            } else {
+                time = Time.valueOf(modifier);
+            }
+        }
+        if (governed && declension != null) {
+            throw new IllegalArgumentException("governed и падеж взаимоисключающие");
+        }
+        return new Transition(partOfSpeech, declension, time, governed, plural, agree, next);
+    }
+
+    private static boolean isDeclension(String name) {
+        for (Declension d : Declension.values()) {
+            if (d.name().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void expectTokens(String[] tokens, int count) {
+        if (tokens.length != count) {
+            throw new IllegalArgumentException("ожидалось " + count + " элемента: " + String.join(" ", tokens));
+        }
+    }
+
+    int start() {
+        return start;
+    }
+
+    /**
+     * Выбрать переход из состояния
+     */
+    Transition next(int state, RandomGenerator random) {
+        return transitions[state][samplers[state].sample(random)];
+    }
+
+    /**
+     * Падеж, которым управляет предлог
+     */
+    Declension government(String preposition) {
+        return government.getOrDefault(preposition, defaultGovernment);
+    }
+
+    String stateName(int state) {
+        return stateNames[state];
+    }
+}
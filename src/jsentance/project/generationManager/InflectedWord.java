@@ -0,0 +1,72 @@
+package jsentance.project.generationManager;
+
+import jsentance.project.wordManager.Declension;
+import jsentance.project.wordManager.FormPool;
+import jsentance.project.wordManager.Genus;
+import jsentance.project.wordManager.Lexeme;
+import jsentance.project.wordManager.PartOfSpeech;
+import jsentance.project.wordManager.Time;
+
+/**
+ * Неизменяемое слово предложения: ссылка на исходное слово словаря
+ * и выбранная форма (падеж или время, число).
+ * Создается генератором вместо копии слова, морфология при этом не пересчитывается.
+ */
+public final class InflectedWord {
+    public final Lexeme source; //исходное слово словаря
+    public final String value; //выбранная форма слова
+    public final Declension declension; //падеж формы (null, если падеж не выбирался)
+    public final Time time; //время формы (null, если время не выбиралось)
+    public final boolean plural; //форма множественного числа
+    public final int formId; //номер формы в source.formPool() (FormPool.NO_FORM - формы в пуле нет)
+    
+    public InflectedWord(Lexeme source, String value, Declension declension, Time time) {
+        this(source, value, declension, time, false);
+    }
+    
+    public InflectedWord(Lexeme source, String value, Declension declension, Time time, boolean plural) {
+        this(source, value, declension, time, plural, FormPool.NO_FORM);
+    }
+    
+    /**
+     * @param formId номер value в source.formPool() - вывод копирует байты формы прямо из пула
+     */
+    public InflectedWord(Lexeme source, String value, Declension declension, Time time, boolean plural,
+                         int formId) {
+        this.source = source;
+        this.value = value;
+        this.declension = declension;
+        this.time = time;
+        this.plural = plural;
+        this.formId = formId;
+    }
+    
+    /**
+     * Номер формы в пуле pool; если форма не из этого пула, она добавляется в пул
+     */
+    public int formId(FormPool pool) {
+        if (formId != FormPool.NO_FORM && source.formPool() == pool) {
+            return formId;
+        }
+        return pool.intern(value);
+    }
+    
+    /**
+     * Часть речи исходного слова
+     */
+    public PartOfSpeech partOfSpeech() {
+        return source.partOfSpeech();
+    }
+    
+    /**
+     * Род формы: для множественного числа - PLURAL, иначе род исходного слова
+     */
+    public Genus genus() {
+        return plural ? Genus.PLURAL : source.genus();
+    }
+    
+    @Override
+    public String toString() {
+        return value;
+    }
+}
@@ -0,0 +1,376 @@
+package jsentance.project.generationManager;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import jsentance.project.wordManager.Declension;
+import jsentance.project.wordManager.FormPool;
+import jsentance.project.wordManager.Genus;
+import jsentance.project.wordManager.PartOfSpeech;
+import jsentance.project.wordManager.Time;
+
+/**
+ * Пакет предложений в колонках примитивов, без объекта на слово:
+ * <pre>
+ * forms:   int на слово   - номер формы в пуле forms()
+ * tags:    short на слово - часть речи, падеж, время, число и род формы (см. tag)
+ * offsets: int на предложение + 1 - первое слово предложения i - offsets[i], конец - offsets[i + 1]
+ * </pre>
+ * Емкость (предложения и слова) задается при создании; пакет заполняют (add, SentenceGenerator.generateBatch),
+ * обрабатывают и очищают (clear) для следующей порции, поэтому память не растет и не выделяется заново.
+ * Колонки лежат в куче (onHeap) или вне кучи в прямых буферах (offHeap) - тогда миллионы слов
+ * не нагружают сборщик мусора.
+ *
+ * Не потокобезопасен: для параллельной генерации - свой пакет на поток (пул форм можно делить).
+ */
+public final class SentenceBatch {
+    private static final PartOfSpeech[] PARTS_OF_SPEECH = PartOfSpeech.values();
+    private static final Declension[] DECLENSIONS = Declension.values();
+    private static final Time[] TIMES = Time.values();
+    private static final Genus[] GENERA = Genus.values();
+
+    // Раскладка тега: биты 0-3 часть речи, 4-6 падеж + 1, 7-8 время + 1, 9 мн. число, 10-12 род
+    private static final int DECLENSION_SHIFT = 4;
+    private static final int TIME_SHIFT = 7;
+    private static final int PLURAL_BIT = 1 << 9;
+    private static final int GENUS_SHIFT = 10;
+
+    private static final byte SPACE = ' ';
+    private static final byte PERIOD = '.';
+
+    private final FormPool forms;
+    private final IntBuffer formIds;
+    private final ShortBuffer tags;
+    private final IntBuffer offsets;
+    private final int maxSentences;
+    private final int maxTokens;
+    private final boolean offHeap;
+    private int sentences;
+    private int tokens;
+    private int[] capitalized = new int[0]; //номер формы -> номер формы с большой буквы + 1 (0 - не считали)
+
+    private SentenceBatch(FormPool forms, int maxSentences, int maxTokens, boolean offHeap) {
+        if (maxSentences < 1 || maxTokens < 1) {
+            throw new IllegalArgumentException("Емкость пакета должна быть положительной: "
+                + maxSentences + " предложений, " + maxTokens + " слов");
+        }
+        this.forms = forms;
+        this.maxSentences = maxSentences;
+        this.maxTokens = maxTokens;
+        this.offHeap = offHeap;
+        if (offHeap) {
+            if (maxTokens > Integer.MAX_VALUE / Integer.BYTES || maxSentences >= Integer.MAX_VALUE / Integer.BYTES) {
+                throw new IllegalArgumentException("Пакет вне кучи больше 2 ГБ на колонку");
+            }
+            this.formIds = direct(maxTokens * Integer.BYTES).asIntBuffer();
+            this.tags = direct(maxTokens * Short.BYTES).asShortBuffer();
+            this.offsets = direct((maxSentences + 1) * Integer.BYTES).asIntBuffer();
+        } else {
+            this.formIds = IntBuffer.allocate(maxTokens);
+            this.tags = ShortBuffer.allocate(maxTokens);
+            this.offsets = IntBuffer.allocate(maxSentences + 1);
+        }
+    }
+
+    private static ByteBuffer direct(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Пакет с колонками в куче
+     */
+    public static SentenceBatch onHeap(int maxSentences, int maxTokens, FormPool forms) {
+        return new SentenceBatch(forms, maxSentences, maxTokens, false);
+    }
+
+    /**
+     * Пакет с колонками вне кучи (прямые буферы; память освобождается вместе с пакетом)
+     */
+    public static SentenceBatch offHeap(int maxSentences, int maxTokens, FormPool forms) {
+        return new SentenceBatch(forms, maxSentences, maxTokens, true);
+    }
+
+    /**
+     * Добавить предложение; false - не хватает емкости (пакет не меняется)
+     */
+    public boolean add(List<InflectedWord> sentence) {
+        int size = sentence.size();
+        if (sentences == maxSentences || maxTokens - tokens < size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            InflectedWord word = sentence.get(i);
+            // Формы не из пула пакета (и согласованные формы прошедшего времени) добавляются в пул
+            formIds.put(tokens + i, word.formId(forms));
+            tags.put(tokens + i, tag(word));
+        }
+        tokens += size;
+        offsets.put(++sentences, tokens);
+        return true;
+    }
+
+    /**
+     * Тег формы: часть речи, падеж, время, число и род в одном short
+     */
+    static short tag(InflectedWord word) {
+        int tag = word.partOfSpeech().ordinal();
+        if (word.declension != null) {
+            tag |= (word.declension.ordinal() + 1) << DECLENSION_SHIFT;
+        }
+        if (word.time != null) {
+            tag |= (word.time.ordinal() + 1) << TIME_SHIFT;
+        }
+        if (word.plural) {
+            tag |= PLURAL_BIT;
+        }
+        return (short) (tag | word.genus().ordinal() << GENUS_SHIFT);
+    }
+
+    /**
+     * Убрать из пакета предложения, которые deduplicator уже видел (в этом или прошлых пакетах);
+     * оставшиеся сдвигаются к началу без изменения порядка. Возвращает, сколько предложений убрано.
+     */
+    public int deduplicate(SentenceDeduplicator deduplicator) {
+        int kept = 0;
+        int keptTokens = 0;
+        for (int i = 0; i < sentences; i++) {
+            if (!deduplicator.add(this, i)) {
+                continue;
+            }
+            int start = offsets.get(i);
+            int end = offsets.get(i + 1);
+            if (keptTokens != start) {
+                for (int t = start; t < end; t++) {
+                    formIds.put(keptTokens + t - start, formIds.get(t));
+                    tags.put(keptTokens + t - start, tags.get(t));
+                }
+            }
+            keptTokens += end - start;
+            // offsets[kept + 1] пишется после чтения offsets[i + 1], а kept <= i
+            offsets.put(++kept, keptTokens);
+        }
+        int removed = sentences - kept;
+        sentences = kept;
+        tokens = keptTokens;
+        return removed;
+    }
+
+    /**
+     * Очистить пакет для следующей порции (память не освобождается)
+     */
+    public void clear() {
+        sentences = 0;
+        tokens = 0;
+    }
+
+    /**
+     * Количество предложений
+     */
+    public int size() {
+        return sentences;
+    }
+
+    public boolean isEmpty() {
+        return sentences == 0;
+    }
+
+    /**
+     * Количество слов во всех предложениях
+     */
+    public int tokenCount() {
+        return tokens;
+    }
+
+    public int maxSentences() {
+        return maxSentences;
+    }
+
+    public int maxTokens() {
+        return maxTokens;
+    }
+
+    /**
+     * Свободное место под слова
+     */
+    public int remainingTokens() {
+        return sentences == maxSentences ? 0 : maxTokens - tokens;
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * Пул, в котором лежат формы слов пакета
+     */
+    public FormPool forms() {
+        return forms;
+    }
+
+    /**
+     * Первое слово предложения
+     */
+    public int start(int sentence) {
+        return offsets.get(checkSentence(sentence));
+    }
+
+    /**
+     * Слово после последнего слова предложения
+     */
+    public int end(int sentence) {
+        return offsets.get(checkSentence(sentence) + 1);
+    }
+
+    public int length(int sentence) {
+        return end(sentence) - start(sentence);
+    }
+
+    private int checkSentence(int sentence) {
+        if (sentence < 0 || sentence >= sentences) {
+            throw new IndexOutOfBoundsException("Предложение " + sentence + " из " + sentences);
+        }
+        return sentence;
+    }
+
+    /**
+     * Номер формы слова в forms()
+     */
+    public int formId(int token) {
+        return formIds.get(checkToken(token));
+    }
+
+    /**
+     * Тег слова (см. partOfSpeech, declension, time, plural, genus)
+     */
+    public short tag(int token) {
+        return tags.get(checkToken(token));
+    }
+
+    private int checkToken(int token) {
+        if (token < 0 || token >= tokens) {
+            throw new IndexOutOfBoundsException("Слово " + token + " из " + tokens);
+        }
+        return token;
+    }
+
+    public static PartOfSpeech partOfSpeech(short tag) {
+        return PARTS_OF_SPEECH[tag & 0xF];
+    }
+
+    /**
+     * Падеж формы (null, если падеж не выбирался)
+     */
+    public static Declension declension(short tag) {
+        int d = tag >>> DECLENSION_SHIFT & 0x7;
+        return d == 0 ? null : DECLENSIONS[d - 1];
+    }
+
+    /**
+     * Время формы (null, если время не выбиралось)
+     */
+    public static Time time(short tag) {
+        int t = tag >>> TIME_SHIFT & 0x3;
+        return t == 0 ? null : TIMES[t - 1];
+    }
+
+    public static boolean plural(short tag) {
+        return (tag & PLURAL_BIT) != 0;
+    }
+
+    /**
+     * Род формы (как InflectedWord.genus())
+     */
+    public static Genus genus(short tag) {
+        return GENERA[tag >>> GENUS_SHIFT & 0x7];
+    }
+
+    /**
+     * Сколько байт UTF-8 займет предложение (как SentenceWriter.encodedLength)
+     */
+    public int encodedLength(int sentence) {
+        int start = start(sentence);
+        int end = end(sentence);
+        if (start == end) {
+            return 0;
+        }
+        int length = forms.length(capitalized(formIds.get(start)));
+        for (int i = start + 1; i < end; i++) {
+            length += 1 + forms.length(formIds.get(i));
+        }
+        return length + 1;
+    }
+
+    /**
+     * Записать предложение в out с позиции offset (места должно хватать, см. encodedLength);
+     * возвращает позицию после предложения
+     */
+    public int render(int sentence, byte[] out, int offset) {
+        int start = start(sentence);
+        int end = end(sentence);
+        if (start == end) {
+            return offset;
+        }
+        offset = forms.copy(capitalized(formIds.get(start)), out, offset);
+        for (int i = start + 1; i < end; i++) {
+            out[offset++] = SPACE;
+            offset = forms.copy(formIds.get(i), out, offset);
+        }
+        out[offset++] = PERIOD;
+        return offset;
+    }
+
+    /**
+     * Записать предложение в буфер (места должно хватать, см. encodedLength)
+     */
+    public void render(int sentence, ByteBuffer out) {
+        int start = start(sentence);
+        int end = end(sentence);
+        if (start == end) {
+            return;
+        }
+        forms.copy(capitalized(formIds.get(start)), out);
+        for (int i = start + 1; i < end; i++) {
+            out.put(SPACE);
+            forms.copy(formIds.get(i), out);
+        }
+        out.put(PERIOD);
+    }
+
+    /**
+     * Предложение строкой (как SentenceGenerator.sentenceToString)
+     */
+    public String toString(int sentence) {
+        byte[] out = new byte[encodedLength(sentence)];
+        render(sentence, out, 0);
+        return new String(out, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Номер формы с большой буквы; считается один раз на форму и добавляется в пул
+     */
+    private int capitalized(int id) {
+        if (id == FormPool.NO_FORM) {
+            return id;
+        }
+        if (id >= capitalized.length) {
+            capitalized = Arrays.copyOf(capitalized, Math.max(id + 1, capitalized.length * 2));
+        }
+        int cached = capitalized[id];
+        if (cached == 0) {
+            String form = forms.form(id);
+            cached = (form.isEmpty() ? id : forms.intern(Character.toUpperCase(form.charAt(0)) + form.substring(1))) + 1;
+            capitalized[id] = cached;
+        }
+        return cached - 1;
+    }
+
+    @Override
+    public String toString() {
+        return "SentenceBatch{sentences=" + sentences + "/" + maxSentences + ", tokens=" + tokens + "/" + maxTokens
+            + (offHeap ? ", off-heap" : "") + "}";
+    }
+}
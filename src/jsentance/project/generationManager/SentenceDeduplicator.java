@@ -0,0 +1,288 @@
+package jsentance.project.generationManager;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import jsentance.project.wordManager.FormPool;
+
+/**
+ * Отсев повторяющихся предложений корпуса за один проход.
+ * Предложение сводится к 64-битному хэшу последовательности номеров форм в пуле forms()
+ * (одинаковые номера - одинаковый текст), строка предложения при этом не собирается.
+ *
+ * Хэши хранятся вне кучи в прямом буфере фиксированного размера, память известна заранее:
+ * <ul>
+ * <li>exact - множество хэшей с открытой адресацией (около 11-21 байт на предложение);
+ *     ошибается только при совпадении 64-битных хэшей разных предложений</li>
+ * <li>bloom - фильтр Блума с заданной долей ложных срабатываний: часть новых предложений
+ *     отбрасывается как повторы, но повтор не проходит никогда</li>
+ * </ul>
+ * Потокобезопасен: ячейки множества обновляются CAS без замков. В фильтре одно предложение
+ * ставит несколько бит, поэтому добавления с одинаковым хэшем идут под одним из LOCK_STRIPES замков
+ * (выбирается по хэшу): два потока с одним и тем же новым предложением не могут оба принять его
+ * как новое, а разные предложения почти никогда не ждут друг друга.
+ */
+public final class SentenceDeduplicator {
+    private static final VarHandle SLOTS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+    private static final long EMPTY = 0; //свободная ячейка множества
+    private static final double MAX_LOAD = 0.75;
+    private static final long MAX_BYTES = Integer.MAX_VALUE & ~7L; //предел прямого буфера
+    private static final int LOCK_STRIPES = 256; //замков фильтра (степень двойки)
+
+    private final FormPool forms;
+    private final ByteBuffer table;
+    private final boolean bloom;
+    private final long slots; //ячеек множества или бит фильтра
+    private final int hashes; //число хэш-функций фильтра
+    private final long capacity; //сколько предложений помещается в множество
+    private final AtomicLong count = new AtomicLong();
+    private final Object[] locks; //только для фильтра
+
+    private SentenceDeduplicator(FormPool forms, long bytes, boolean bloom, long slots, int hashes, long capacity) {
+        if (bytes > MAX_BYTES) {
+            throw new IllegalArgumentException("Слишком большая таблица повторов: " + bytes + " байт");
+        }
+        this.forms = forms;
+        this.table = ByteBuffer.allocateDirect((int) bytes).order(ByteOrder.nativeOrder());
+        this.bloom = bloom;
+        this.slots = slots;
+        this.hashes = hashes;
+        this.capacity = capacity;
+        this.locks = bloom ? new Object[LOCK_STRIPES] : null;
+        if (bloom) {
+            for (int i = 0; i < LOCK_STRIPES; i++) {
+                locks[i] = new Object();
+            }
+        }
+    }
+
+    /**
+     * Точный отсев (множество 64-битных хэшей) для не более чем expected различных предложений
+     */
+    public static SentenceDeduplicator exact(long expected, FormPool forms) {
+        if (expected < 1) {
+            throw new IllegalArgumentException("Ожидаемое число предложений должно быть положительным: " + expected);
+        }
+        long slots = Long.highestOneBit((long) Math.ceil(expected / MAX_LOAD) - 1) << 1;
+        slots = Math.max(slots, 2);
+        return new SentenceDeduplicator(forms, slots * Long.BYTES, false, slots,
+                                        0, (long) (slots * MAX_LOAD));
+    }
+
+    /**
+     * Фильтр Блума на expected предложений с долей ложных срабатываний falsePositiveRate
+     * (при большем числе предложений доля растет, но память не меняется)
+     */
+    public static SentenceDeduplicator bloom(long expected, double falsePositiveRate, FormPool forms) {
+        if (expected < 1) {
+            throw new IllegalArgumentException("Ожидаемое число предложений должно быть положительным: " + expected);
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("Доля ложных срабатываний должна быть в (0, 1): " + falsePositiveRate);
+        }
+        // m = -n ln p / (ln 2)^2 бит, k = m / n * ln 2 хэш-функций
+        long bits = (long) Math.ceil(-expected * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        long words = Math.max(1, (bits + Long.SIZE - 1) / Long.SIZE);
+        int hashes = Math.max(1, (int) Math.round((double) words * Long.SIZE / expected * Math.log(2)));
+        return new SentenceDeduplicator(forms, words * Long.BYTES, true, words * Long.SIZE,
+                                        hashes, Long.MAX_VALUE);
+    }
+
+    /**
+     * Пул, по номерам форм которого считается хэш
+     */
+    public FormPool forms() {
+        return forms;
+    }
+
+    public boolean isBloom() {
+        return bloom;
+    }
+
+    /**
+     * Сколько предложений принято как новые
+     */
+    public long count() {
+        return count.get();
+    }
+
+    /**
+     * Память таблицы (вне кучи), байт
+     */
+    public long byteSize() {
+        return table.capacity();
+    }
+
+    /**
+     * Запомнить предложение; true - предложение новое, false - повтор (или ложное срабатывание фильтра)
+     *
+     * @throws IllegalStateException точное множество заполнено
+     */
+    public boolean add(List<InflectedWord> sentence) {
+        return addHash(hash(sentence));
+    }
+
+    /**
+     * Запомнить предложение пакета (пакет должен хранить формы в том же пуле)
+     */
+    public boolean add(SentenceBatch batch, int sentence) {
+        return addHash(hash(batch, sentence));
+    }
+
+    /**
+     * Встречалось ли предложение (без запоминания)
+     */
+    public boolean contains(List<InflectedWord> sentence) {
+        return containsHash(hash(sentence));
+    }
+
+    /**
+     * 64-битный хэш номеров форм предложения (формы не из пула добавляются в пул)
+     */
+    public long hash(List<InflectedWord> sentence) {
+        int size = sentence.size();
+        long h = size;
+        for (int i = 0; i < size; i++) {
+            h = mix(h, sentence.get(i).formId(forms));
+        }
+        return finish(h);
+    }
+
+    /**
+     * Хэш предложения пакета; совпадает с hash(List) того же предложения
+     */
+    public long hash(SentenceBatch batch, int sentence) {
+        if (batch.forms() != forms) {
+            throw new IllegalArgumentException("Пакет хранит формы в другом пуле");
+        }
+        int start = batch.start(sentence);
+        int end = batch.end(sentence);
+        long h = end - start;
+        for (int i = start; i < end; i++) {
+            h = mix(h, batch.formId(i));
+        }
+        return finish(h);
+    }
+
+    private static long mix(long h, int id) {
+        return Long.rotateLeft(h ^ (id + 1) * 0x9E3779B97F4A7C15L, 29) * 0xBF58476D1CE4E5B9L;
+    }
+
+    /**
+     * Финализатор MurmurHash3 (fmix64)
+     */
+    private static long finish(long h) {
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+
+    private boolean addHash(long hash) {
+        boolean added = bloom ? addToFilter(hash) : addToSet(hash);
+        if (added) {
+            count.incrementAndGet();
+        }
+        return added;
+    }
+
+    private boolean containsHash(long hash) {
+        return bloom ? filterContains(hash) : setContains(hash);
+    }
+
+    private boolean addToSet(long hash) {
+        long key = hash == EMPTY ? 1 : hash;
+        int mask = (int) slots - 1;
+        for (int i = (int) key & mask; ; i = (i + 1) & mask) {
+            int offset = i * Long.BYTES;
+            long current = (long) SLOTS.getVolatile(table, offset);
+            while (current == EMPTY) {
+                if (count.get() >= capacity) {
+                    throw new IllegalStateException("Таблица повторов заполнена: " + capacity + " предложений");
+                }
+                current = (long) SLOTS.compareAndExchange(table, offset, EMPTY, key);
+                if (current == EMPTY) {
+                    return true;
+                }
+            }
+            if (current == key) {
+                return false;
+            }
+        }
+    }
+
+    private boolean setContains(long hash) {
+        long key = hash == EMPTY ? 1 : hash;
+        int mask = (int) slots - 1;
+        for (int i = (int) key & mask; ; i = (i + 1) & mask) {
+            long current = (long) SLOTS.getVolatile(table, i * Long.BYTES);
+            if (current == EMPTY) {
+                return false;
+            }
+            if (current == key) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Биты фильтра: двойное хэширование h1 + i * h2 (Кирш - Митценмахер).
+     * Предложение новое, если этот вызов поставил хотя бы один бит; одинаковые хэши
+     * ставят биты по очереди (замок полосы), иначе оба потока могли бы поставить по своему биту.
+     * Биты других предложений меняются параллельно (getAndBitwiseOr) - это может лишь
+     * добавить ложное срабатывание.
+     */
+    private boolean addToFilter(long hash) {
+        synchronized (locks[(int) (hash ^ hash >>> 40) & (LOCK_STRIPES - 1)]) {
+            return setBits(hash);
+        }
+    }
+
+    private boolean setBits(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        boolean added = false;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, slots);
+            int offset = (int) (bit >>> 6) * Long.BYTES;
+            long mask = 1L << bit;
+            long previous = (long) SLOTS.getAndBitwiseOr(table, offset, mask);
+            if ((previous & mask) == 0) {
+                added = true;
+            }
+        }
+        return added;
+    }
+
+    private boolean filterContains(long hash) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashes; i++) {
+            long bit = Math.floorMod(h1 + (long) i * h2, slots);
+            long word = (long) SLOTS.getVolatile(table, (int) (bit >>> 6) * Long.BYTES);
+            if ((word & 1L << bit) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Забыть все предложения (память не освобождается)
+     */
+    public void clear() {
+        for (int offset = 0; offset < table.capacity(); offset += Long.BYTES) {
+            SLOTS.setVolatile(table, offset, EMPTY);
+        }
+        count.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "SentenceDeduplicator{" + (bloom ? "bloom, k=" + hashes : "exact, capacity=" + capacity)
+            + ", count=" + count() + ", bytes=" + byteSize() + "}";
+    }
+}
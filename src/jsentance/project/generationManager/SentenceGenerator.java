@@ -1,349 +1,602 @@
 package jsentance.project.generationManager;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import jsentance.project.wordManager.Declension;
 import jsentance.project.wordManager.Genus;
+import jsentance.project.wordManager.Lexeme;
 import jsentance.project.wordManager.PartOfSpeech;
 import jsentance.project.wordManager.Time;
 import jsentance.project.wordManager.Word;
 
 /**
- * Класс для генерации грамматически правильных предложений
+ * Класс для генерации грамматически правильных предложений.
+ *
+ * Словарь, индексы, грамматика и ограничения хранятся в неизменяемом снимке (Snapshot),
+ * на который указывает одна атомарная ссылка. Генерация читает снимок один раз на предложение
+ * и не берет никаких замков; изменения (setWords, setGrammar, ...) собирают новый снимок
+ * и подменяют ссылку, поэтому один генератор можно использовать из многих потоков.
+ * Словарь можно менять пакетами (updateVocabulary) без полной перестройки индексов.
+ * Генератор без своего источника случайности берет ThreadLocalRandom текущего потока.
  */
 public class SentenceGenerator {
-    private List<Word> words;
-    private Random random;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    private final RandomGenerator random; // null - ThreadLocalRandom текущего потока
     
+    private static final int PART_OF_SPEECH_COUNT = PartOfSpeech.values().length;
+    private static final int UNIQUE_CHUNK = 4096; //кандидатов за раз в generateUniqueSentences
+    private static final int UNIQUE_GIVE_UP = 64 * UNIQUE_CHUNK; //повторов подряд, после которых новых не ищем
+    
+    /**
+     * Неизменяемое состояние генератора
+     */
+    private static final class Snapshot {
+        final List<Word> words; // исходный словарь (null, если генератор создан или изменен лексемами)
+        final WordIndex index; // индекс словаря, строится один раз
+        final AgreementTable agreement; // готовые согласованные формы прилагательных
+        final Grammar grammar; // структура предложений
+        final int maxSteps; // сколько переходов грамматики делается максимум
+        final int maxSamePartOfSpeech; // сколько слов одной части речи допускается в предложении
+        final GenerationMetrics metrics; // null - метрики выключены
+        
+        Snapshot(List<Word> words, WordIndex index, AgreementTable agreement,
+                 Grammar grammar, int maxSteps, int maxSamePartOfSpeech, GenerationMetrics metrics) {
+            this.words = words;
+            this.index = index;
+            this.agreement = agreement;
+            this.grammar = grammar;
+            this.maxSteps = maxSteps;
+            this.maxSamePartOfSpeech = maxSamePartOfSpeech;
+            this.metrics = metrics;
+        }
+        
+        /**
+         * Снимок с новым словарем; индексы строятся здесь же, до публикации
+         */
+        static Snapshot indexed(List<Word> words, List<Lexeme> lexemes, Grammar grammar,
+                                int maxSteps, int maxSamePartOfSpeech, GenerationMetrics metrics) {
+            long start = metrics != null ? System.nanoTime() : 0;
+            WordIndex index = WordIndex.build(lexemes);
+            AgreementTable agreement = AgreementTable.build(index, PartOfSpeech.ADJECTIVE);
+            if (metrics != null) {
+                metrics.recordIndexBuild(true, System.nanoTime() - start);
+            }
+            return new Snapshot(words, index, agreement, grammar, maxSteps, maxSamePartOfSpeech, metrics);
+        }
+        
+        /**
+         * Снимок со словарем, измененным пакетом update; пересобирается только затронутое
+         */
+        Snapshot updated(VocabularyUpdate update) {
+            long start = metrics != null ? System.nanoTime() : 0;
+            WordIndex next = index.update(update.added(), update.removed());
+            AgreementTable nextAgreement = agreement.update(next, PartOfSpeech.ADJECTIVE,
+                                                            update.added(), update.removed());
+            if (metrics != null) {
+                metrics.recordIndexBuild(false, System.nanoTime() - start);
+            }
+            return new Snapshot(null, next, nextAgreement, grammar, maxSteps, maxSamePartOfSpeech, metrics);
+        }
+        
+        Snapshot withVocabulary(Snapshot vocabulary) {
+            return new Snapshot(vocabulary.words, vocabulary.index, vocabulary.agreement,
+                                grammar, maxSteps, maxSamePartOfSpeech, metrics);
+        }
+        
+        Snapshot withGrammar(Grammar grammar) {
+            return new Snapshot(words, index, agreement, grammar, maxSteps, maxSamePartOfSpeech, metrics);
+        }
+        
+        Snapshot withMaxSteps(int maxSteps) {
+            return new Snapshot(words, index, agreement, grammar, maxSteps, maxSamePartOfSpeech, metrics);
+        }
+        
+        Snapshot withMaxSamePartOfSpeech(int maxSamePartOfSpeech) {
+            return new Snapshot(words, index, agreement, grammar, maxSteps, maxSamePartOfSpeech, metrics);
+        }
+        
+        Snapshot withMetrics(GenerationMetrics metrics) {
+            return new Snapshot(words, index, agreement, grammar, maxSteps, maxSamePartOfSpeech, metrics);
+        }
+    }
+    
+    /**
+     * Генератор для использования из любого числа потоков (случайность - ThreadLocalRandom)
+     */
     public SentenceGenerator(List<Word> words) {
-        this.words = words;
-        this.random = new Random();
+        this.random = null;
+        this.snapshot.set(Snapshot.indexed(words, Lexeme.fromWords(words), Grammar.defaultGrammar(), 23, 3, null));
+    }
+    
+    /**
+     * Генератор с фиксированным зерном: одинаковый seed дает одинаковую последовательность предложений
+     */
+    public SentenceGenerator(List<Word> words, long seed) {
+        this(words, new SplittableRandom(seed));
+    }
+    
+    /**
+     * Генератор с заданным источником случайности (generateSentence(int) - из одного потока;
+     * из нескольких потоков используйте generateSentence(int, RandomGenerator))
+     */
+    public SentenceGenerator(List<Word> words, RandomGenerator random) {
+        this.random = Objects.requireNonNull(random);
+        this.snapshot.set(Snapshot.indexed(words, Lexeme.fromWords(words), Grammar.defaultGrammar(), 23, 3, null));
+    }
+    
+    private SentenceGenerator(RandomGenerator random, List<Lexeme> lexemes) {
+        this.random = random;
+        this.snapshot.set(Snapshot.indexed(null, List.copyOf(lexemes), Grammar.defaultGrammar(), 23, 3, null));
+    }
+    
+    /**
+     * Создать генератор из готовых лексем (случайность - ThreadLocalRandom)
+     */
+    public static SentenceGenerator fromLexemes(List<Lexeme> lexemes) {
+        return new SentenceGenerator(null, lexemes);
+    }
+    
+    /**
+     * Создать генератор из готовых лексем с заданным источником случайности
+     */
+    public static SentenceGenerator fromLexemes(List<Lexeme> lexemes, RandomGenerator random) {
+        return new SentenceGenerator(Objects.requireNonNull(random), lexemes);
+    }
+    
+    /**
+     * Перестроить индекс после изменения текущего списка слов
+     */
+    public void rebuildIndex() {
+        List<Word> words = snapshot.get().words;
+        if (words != null) {
+            setWords(words);
+        }
+    }
+    
+    /**
+     * Заменить словарь и перестроить индекс. Индекс строится до подмены снимка:
+     * предложения, которые генерируются в это время, достраиваются по старому словарю.
+     */
+    public void setWords(List<Word> words) {
+        publishVocabulary(words, Lexeme.fromWords(words));
+    }
+    
+    /**
+     * Заменить словарь готовыми лексемами и перестроить индекс
+     */
+    public void setLexemes(List<Lexeme> lexemes) {
+        publishVocabulary(null, List.copyOf(lexemes));
+    }
+    
+    private void publishVocabulary(List<Word> words, List<Lexeme> lexemes) {
+        Snapshot current = snapshot.get();
+        Snapshot vocabulary = Snapshot.indexed(words, lexemes, current.grammar,
+                                               current.maxSteps, current.maxSamePartOfSpeech, current.metrics);
+        snapshot.updateAndGet(s -> s.withVocabulary(vocabulary));
+    }
+    
+    /**
+     * Изменить словарь пакетом update. Новые индексы собираются из старых (пересобираются
+     * только затронутые корзины) и подменяются одной атомарной операцией: начатые предложения
+     * достраиваются по старому словарю, следующие - по новому. Генерацию не останавливает.
+     * Одновременные изменения словаря применяются по очереди, ни одно не теряется.
+     */
+    public void updateVocabulary(VocabularyUpdate update) {
+        if (update.isEmpty()) {
+            return;
+        }
+        while (true) {
+            Snapshot base = snapshot.get();
+            Snapshot vocabulary = base.updated(update);
+            // Грамматику и ограничения могли поменять, пока строился индекс, - их сохраняем;
+            // если успели поменять словарь, применяем пакет заново к новому
+            Snapshot current = base;
+            while (current.index == base.index) {
+                if (snapshot.compareAndSet(current, current.withVocabulary(vocabulary))) {
+                    return;
+                }
+                current = snapshot.get();
+            }
+        }
+    }
+    
+    /**
+     * Изменить словарь пакетом update в фоне (в общем ForkJoinPool)
+     */
+    public CompletableFuture<Void> updateVocabularyAsync(VocabularyUpdate update) {
+        return CompletableFuture.runAsync(() -> updateVocabulary(update));
+    }
+    
+    /**
+     * Изменить словарь пакетом update в фоне на заданном исполнителе
+     */
+    public CompletableFuture<Void> updateVocabularyAsync(VocabularyUpdate update, Executor executor) {
+        return CompletableFuture.runAsync(() -> updateVocabulary(update), executor);
     }
     
     /**
-     * Создать копию слова
+     * Скомпилировать шаблоны предложений по текущему словарю (формат - см. SentenceTemplates).
+     * Для однотипных предложений это на порядок быстрее generateSentence
      */
-    private Word copyWord(Word original) {
-        Word copy = new Word(original.value, original.genus, original.partOfSpeech);
-        copy.declensionVal.putAll(original.declensionVal);
-        copy.timesVal.putAll(original.timesVal);
-        return copy;
+    public SentenceTemplates compileTemplates(String... skeletons) {
+        return compileTemplates(List.of(skeletons));
+    }
+    
+    public SentenceTemplates compileTemplates(List<String> skeletons) {
+        Snapshot snapshot = this.snapshot.get();
+        return SentenceTemplates.compile(snapshot.index, snapshot.agreement, snapshot.grammar, skeletons);
     }
     
     /**
-     * Получить все слова определенной части речи
+     * Текущий словарь (неизменяемый список)
      */
-    private List<Word> getWordsByPartOfSpeech(PartOfSpeech pos) {
-        return words.stream()
-            .filter(word -> word.partOfSpeech == pos)
-            .collect(Collectors.toList());
+    public List<Lexeme> getLexemes() {
+        return snapshot.get().index.lexemes();
     }
     
     /**
-     * Проверить, есть ли у слова форма для указанного падежа
+     * Задать грамматику, по которой строятся предложения
      */
-    private boolean hasDeclensionForm(Word word, Declension declension) {
-        return word.declensionVal.containsKey(declension) && 
-               word.declensionVal.get(declension) != null &&
-               !word.declensionVal.get(declension).isEmpty();
+    public void setGrammar(Grammar grammar) {
+        Objects.requireNonNull(grammar);
+        snapshot.updateAndGet(s -> s.withGrammar(grammar));
+    }
+    
+    public Grammar getGrammar() {
+        return snapshot.get().grammar;
     }
     
     /**
-     * Получить форму слова в нужном падеже (с проверкой)
+     * Задать максимальное число переходов грамматики (по умолчанию 23: три на подлежащее
+     * со сказуемым и 20 на дополнения). Вместе с maxLength ограничивает длину предложения
      */
-    private String getDeclensionForm(Word word, Declension declension) {
-        if (hasDeclensionForm(word, declension)) {
-            return word.declensionVal.get(declension);
+    public void setMaxSteps(int maxSteps) {
+        if (maxSteps < 0) {
+            throw new IllegalArgumentException("maxSteps < 0: " + maxSteps);
         }
-        // Если нет нужной формы, возвращаем исходное слово
-        return word.value;
+        snapshot.updateAndGet(s -> s.withMaxSteps(maxSteps));
+    }
+    
+    public int getMaxSteps() {
+        return snapshot.get().maxSteps;
     }
     
     /**
-    * Получить правильный падеж для существительного после предлога
+     * Задать, сколько слов одной части речи может быть в предложении (по умолчанию 3)
+     */
+    public void setMaxSamePartOfSpeech(int maxSamePartOfSpeech) {
+        if (maxSamePartOfSpeech < 1) {
+            throw new IllegalArgumentException("maxSamePartOfSpeech < 1: " + maxSamePartOfSpeech);
+        }
+        snapshot.updateAndGet(s -> s.withMaxSamePartOfSpeech(maxSamePartOfSpeech));
+    }
+    
+    public int getMaxSamePartOfSpeech() {
+        return snapshot.get().maxSamePartOfSpeech;
+    }
+    
+    /**
+     * Включить метрики генерации (null - выключить). Без метрик генерация
+     * не считает ничего, кроме одной проверки на null за предложение
+     */
+    public void setMetrics(GenerationMetrics metrics) {
+        snapshot.updateAndGet(s -> s.withMetrics(metrics));
+    }
+    
+    public GenerationMetrics getMetrics() {
+        return snapshot.get().metrics;
+    }
+    
+   /**
+    * Генерация предложения
     */
-   private Declension getCaseForPreposition(Word preposition) {
-       // Русские предлоги и соответствующие им падежи
-       switch (preposition.value) {
-           case "в":
-           case "на":
-           case "о":
-           case "при":
-               return Declension.PREPOSITIONAL; // предложный падеж
-           case "без":
-           case "для":
-           case "до":
-           case "из":
-           case "от":
-           case "у":
-               return Declension.GENITIVE; // родительный падеж
-           case "к":
-               return Declension.DATIVE; // дательный падеж
-           case "под":
-           case "за":
-           case "над":
-           case "перед":
-           case "между":
-               return Declension.CREATIVE; // творительный падеж
-           default:
-               return Declension.PREPOSITIONAL;
-       }
+   public List<InflectedWord> generateSentence(int maxLength) {
+       return generateSentence(maxLength, random != null ? random : ThreadLocalRandom.current());
    }
 
    /**
-    * Генерация предложения
+    * Сгенерировать предложение номер index корпуса с заданным seed.
+    * Не зависит от предыдущих предложений: одинаковые (seed, index) всегда дают одно и то же
+    * предложение, поэтому корпус можно делить между потоками и машинами по диапазонам номеров.
     */
-   public List<Word> generateSentence(int maxLength) {
-       List<Word> sentence = new ArrayList<>();
+   public List<InflectedWord> generateSentence(int maxLength, long seed, long index) {
+       return generateSentence(maxLength, new SplittableRandom(sentenceSeed(seed, index)));
+   }
 
-       // Шаг 1: Выбираем подлежащее (существительное)
-       Word subject = getRandomNoun();
-       if (subject == null) return sentence;
-       sentence.add(subject);
+   /**
+    * Сгенерировать count предложений, распределив работу по ядрам процессора.
+    * Предложение i равно generateSentence(maxLength, seed, i) независимо от числа потоков.
+    */
+   public Stream<List<InflectedWord>> generateSentences(long count, int maxLength, long seed) {
+       return generateSentences(0, count, maxLength, seed);
+   }
 
-       // Шаг 2: С вероятностью 50% добавляем прилагательное перед существительным
-       if (random.nextBoolean() && sentence.size() < maxLength) {
-           Word adjective = getMatchingAdjective(subject.genus, Declension.NOMINATIVE);
-           if (adjective != null) {
-               sentence.add(0, adjective);
-           }
+   /**
+    * Сгенерировать предложения с номерами [from, to) корпуса seed (например, шард на одной машине)
+    */
+   public Stream<List<InflectedWord>> generateSentences(long from, long to, int maxLength, long seed) {
+       if (from < 0 || to < from) {
+           throw new IllegalArgumentException("Неверный диапазон предложений: [" + from + ", " + to + ")");
        }
+       return LongStream.range(from, to).parallel()
+           .mapToObj(i -> generateSentence(maxLength, seed, i));
+   }
 
-       // Шаг 3: Добавляем глагол (всегда)
-       if (sentence.size() < maxLength) {
-           Word verb = getRandomVerb();
-           if (verb != null) {
-               Word conjugatedVerb = conjugateVerb(verb, subject.genus);
-               sentence.add(conjugatedVerb);
+   /**
+    * Сгенерировать count различных предложений корпуса seed за один проход: кандидаты
+    * generateSentence(maxLength, seed, i) для i = 0, 1, ... считаются параллельно кусками,
+    * а через deduplicator проходят строго по порядку номеров, поэтому результат от числа потоков не зависит.
+    * Поток заканчивается раньше, если новых предложений не нашлось среди UNIQUE_GIVE_UP кандидатов подряд
+    * (словарь исчерпан или фильтр Блума переполнен): тогда в нем меньше count предложений, и сколько
+    * найдено, вызывающий узнает по длине потока. Исключения нет, чтобы не терять уже выданное.
+    */
+   public Stream<List<InflectedWord>> generateUniqueSentences(long count, int maxLength, long seed,
+                                                              SentenceDeduplicator deduplicator) {
+       if (count < 0) {
+           throw new IllegalArgumentException("Неверное число предложений: " + count);
+       }
+       Spliterator<List<InflectedWord>> unique = new Spliterators.AbstractSpliterator<List<InflectedWord>>(
+               count, Spliterator.ORDERED | Spliterator.NONNULL) {
+           private Iterator<List<InflectedWord>> candidates = Collections.emptyIterator();
+           private long next; // номер следующего куска кандидатов
+           private long found;
+           private long repeats; // повторов подряд
+
+           @Override
+           public boolean tryAdvance(Consumer<? super List<InflectedWord>> action) {
+               while (found < count && repeats < UNIQUE_GIVE_UP) {
+                   if (!candidates.hasNext()) {
+                       candidates = generateSentences(next, next + UNIQUE_CHUNK, maxLength, seed).toList().iterator();
+                       next += UNIQUE_CHUNK;
+                   }
+                   List<InflectedWord> sentence = candidates.next();
+                   if (deduplicator.add(sentence)) {
+                       found++;
+                       repeats = 0;
+                       action.accept(sentence);
+                       return true;
+                   }
+                   repeats++;
+               }
+               return false;
            }
+       };
+       return StreamSupport.stream(unique, false);
+   }
+
+   /**
+    * Дописать в пакет предложения номер from, from + 1, ... корпуса seed (как generateSentence(maxLength, seed, i)),
+    * пока в пакете есть место под предложение длины maxLength; возвращает, сколько предложений добавлено
+    */
+   public int generateBatch(SentenceBatch batch, int maxLength, long seed, long from) {
+       int bound = Math.min(maxLength, snapshot.get().maxSteps);
+       int added = 0;
+       while (batch.remainingTokens() >= bound && batch.add(generateSentence(maxLength, seed, from + added))) {
+           added++;
        }
+       return added;
+   }
+
+   /**
+    * Зерно предложения: перемешиваем seed и номер (финализатор SplitMix64),
+    * чтобы соседние номера давали независимые последовательности
+    */
+   static long sentenceSeed(long seed, long index) {
+       long z = seed + (index + 1) * 0x9E3779B97F4A7C15L;
+       z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+       z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+       return z ^ (z >>> 31);
+   }
 
-       // Шаг 4: Добавляем дополнения
-       boolean canAddMore = true;
-       int safetyCounter = 0;
-       Word lastPreposition = null;
+   /**
+    * Генерация предложения с заданным источником случайности.
+    * Общего изменяемого состояния не трогает, поэтому безопасна для вызова из разных потоков
+    * с разными источниками случайности (например, своим на каждый поток).
+    */
+   public List<InflectedWord> generateSentence(int maxLength, RandomGenerator random) {
+       Snapshot snapshot = this.snapshot.get();
+       Grammar grammar = snapshot.grammar;
+       int maxSteps = snapshot.maxSteps;
+       int maxSamePartOfSpeech = snapshot.maxSamePartOfSpeech;
+       GenerationMetrics metrics = snapshot.metrics;
+       long start = metrics != null ? System.nanoTime() : 0;
 
-       while (sentence.size() < maxLength && canAddMore && safetyCounter < 20) {
-           safetyCounter++;
-           Word lastWord = sentence.get(sentence.size() - 1);
-           Word nextWord = null;
+       // Каждый переход автомата добавляет не больше одного слова
+       int capacity = Math.min(maxLength, maxSteps);
+       if (capacity <= 0) return List.of();
+       InflectedWord[] sentence = new InflectedWord[capacity];
+       int size = 0;
+       int[] partOfSpeechCount = new int[PART_OF_SPEECH_COUNT];
 
-           // Определяем возможное следующее слово на основе последнего
-           if (lastWord.partOfSpeech == PartOfSpeech.VERB) {
-               // После глагола может быть наречие или дополнение
-               int choice = random.nextInt(3);
+       Genus genus = null; // род предложения, задается первым согласуемым словом
+       Declension governedCase = null; // падеж, которым управляет последний предлог
+       int state = grammar.start();
+       // Счетчики для метрик: локальные переменные почти ничего не стоят и без метрик
+       int step = 0;
+       int empty = 0;
+       int numberRejected = 0;
+       int duplicates = 0;
+       boolean stopped = false;
 
-               if (choice == 0) {
-                   // Наречие
-                   nextWord = getRandomAdverb();
-               } else if (choice == 1) {
-                   // Предлог
-                   nextWord = getRandomPreposition();
-                   if (nextWord != null) {
-                       lastPreposition = nextWord;
-                   }
-               } else {
-                   // Существительное в винительном падеже
-                   nextWord = getRandomNounInCase(Declension.ACCUSTIVE);
-               }
-           } 
-           else if (lastWord.partOfSpeech == PartOfSpeech.PREPOSITION) {
-               // После предлога - существительное в правильном падеже
-               Declension requiredCase = getCaseForPreposition(lastWord);
-               nextWord = getRandomNounInCase(requiredCase);
-               lastPreposition = null;
+       for (; step < maxSteps && size < maxLength; step++) {
+           Grammar.Transition transition = grammar.next(state, random);
+           if (transition.next == Grammar.STOP) {
+               stopped = true;
+               break;
            }
-           else if (lastWord.partOfSpeech == PartOfSpeech.NOUN) {
-               // После существительного может быть предлог
-               if (random.nextInt(3) == 0) { // 33% шанс
-                   nextWord = getRandomPreposition();
-                   if (nextWord != null) {
-                       lastPreposition = nextWord;
-                   }
-               }
+
+           if (transition.partOfSpeech == null) {
+               // Переход без слова
+               state = transition.next;
+               continue;
            }
-           else if (lastWord.partOfSpeech == PartOfSpeech.ADVERB) {
-               // После наречия может быть предлог
-               if (random.nextBoolean()) {
-                   nextWord = getRandomPreposition();
-                   if (nextWord != null) {
-                       lastPreposition = nextWord;
-                   }
-               } else {
-                   canAddMore = false;
-               }
+
+           if (transition.plural && transition.agree && genus != null && genus != Genus.PLURAL) {
+               // Число предложения уже задано единственным - переход не подходит
+               numberRejected++;
+               continue;
+           }
+           boolean plural = transition.plural || (transition.agree && genus == Genus.PLURAL);
+           Declension declension = transition.governed ? governedCase : transition.declension;
+           Genus required = transition.agree ? genus : null;
+           InflectedWord word = getWord(snapshot, transition.partOfSpeech, declension, transition.time,
+                                        required, plural, random, metrics);
+           if (word == null) {
+               // Слов нужной части речи нет - пробуем другой переход
+               empty++;
+               continue;
            }
 
-           // Проверяем, что получили валидное слово
-           if (nextWord != null) {
-               Word finalNextWord = nextWord;
-               // Проверяем, что слово не повторяется слишком часто
-               boolean isDuplicate = sentence.stream()
-                   .filter(w -> w.partOfSpeech == finalNextWord.partOfSpeech)
-                   .count() > 2;
+           // Проверяем, что слово не повторяется слишком часто
+           int pos = word.partOfSpeech().ordinal();
+           if (partOfSpeechCount[pos] >= maxSamePartOfSpeech) {
+               duplicates++;
+               continue;
+           }
 
-               if (!isDuplicate) {
-                   sentence.add(nextWord);
-               }
-           } else {
-               // Если не можем добавить слово, уменьшаем шанс продолжения
-               canAddMore = random.nextInt(100) < 30;
+           sentence[size++] = word;
+           partOfSpeechCount[pos]++;
+           if (transition.agree && genus == null && word.genus() != Genus.NONE) {
+               genus = word.genus();
            }
+           if (word.partOfSpeech() == PartOfSpeech.PREPOSITION) {
+               governedCase = grammar.government(word.value);
+           }
+           state = transition.next;
        }
 
-       return sentence;
+       if (metrics != null) {
+           metrics.recordSentence(size, step, empty, numberRejected, duplicates, !stopped,
+                                  System.nanoTime() - start);
+       }
+       return Arrays.asList(size == sentence.length ? sentence : Arrays.copyOf(sentence, size));
    }
     
     /**
-     * Получить случайное существительное
-     */
-    private Word getRandomNoun() {
-        List<Word> nouns = getWordsByPartOfSpeech(PartOfSpeech.NOUN);
-        if (nouns.isEmpty()) return null;
-        
-        Word noun = nouns.get(random.nextInt(nouns.size()));
-        Word copy = copyWord(noun);
-        
-        String nominative = getDeclensionForm(copy, Declension.NOMINATIVE);
-        copy.value = nominative;
-        
-        return copy;
-    }
-    
-    /**
-     * Получить случайное существительное в нужном падеже
+     * Получить слово для перехода: нужной части речи, в нужном падеже или времени, числе
+     * и (если задан род) согласованное по роду
      */
-    private Word getRandomNounInCase(Declension declension) {
-        List<Word> nouns = getWordsByPartOfSpeech(PartOfSpeech.NOUN);
-        if (nouns.isEmpty()) return null;
-        
-        // Фильтруем существительные, у которых есть нужный падеж
-        List<Word> validNouns = nouns.stream()
-            .filter(noun -> hasDeclensionForm(noun, declension))
-            .collect(Collectors.toList());
-        
-        if (validNouns.isEmpty()) {
-            // Если нет слов с нужным падежом, берем любое
-            Word noun = nouns.get(random.nextInt(nouns.size()));
-            Word copy = copyWord(noun);
-            copy.value = copy.value; // Оставляем как есть
-            return copy;
+    private static InflectedWord getWord(Snapshot snapshot, PartOfSpeech pos, Declension declension, Time time,
+                                         Genus genus, boolean plural, RandomGenerator random,
+                                         GenerationMetrics metrics) {
+        WordIndex index = snapshot.index;
+        if (pos == PartOfSpeech.ADJECTIVE && declension != null && (genus != null || plural)) {
+            // Согласованное прилагательное берем готовым из таблицы; если согласованного нет,
+            // прилагательное не ставим вовсе, а не берем прилагательное другого рода
+            return snapshot.agreement.pick(plural ? Genus.PLURAL : genus, declension, random);
         }
-        
-        Word noun = validNouns.get(random.nextInt(validNouns.size()));
-        Word copy = copyWord(noun);
-        copy.value = getDeclensionForm(copy, declension);
-        
-        return copy;
-    }
-    
-    /**
-     * Получить прилагательное, подходящее по роду и падежу
-     */
-    private Word getMatchingAdjective(Genus genus, Declension declension) {
-        List<Word> adjectives = getWordsByPartOfSpeech(PartOfSpeech.ADJECTIVE);
-        
-        // Ищем прилагательные подходящего рода
-        List<Word> matching = adjectives.stream()
-            .filter(adj -> adj.genus == genus)
-            .filter(adj -> hasDeclensionForm(adj, declension))
-            .collect(Collectors.toList());
-        
-        if (matching.isEmpty()) {
-            // Если нет точного совпадения, берем любое прилагательное
-            if (adjectives.isEmpty()) return null;
-            Word adj = adjectives.get(random.nextInt(adjectives.size()));
-            Word copy = copyWord(adj);
-            copy.value = getDeclensionForm(copy, declension);
-            return copy;
+        if (plural && declension != null) {
+            Lexeme word = index.getPlural(pos, declension).pick(random);
+            if (word != null) {
+                return new InflectedWord(word, word.plural(declension), declension, null, true, word.pluralId(declension));
+            }
+            // Форм множественного числа нет - берем единственное
+            if (metrics != null) {
+                metrics.pluralFallback();
+            }
         }
-        
-        Word adj = matching.get(random.nextInt(matching.size()));
-        Word copy = copyWord(adj);
-        copy.value = getDeclensionForm(copy, declension);
-        
-        return copy;
-    }
-    
-    /**
-     * Получить случайный глагол
-     */
-    private Word getRandomVerb() {
-        List<Word> verbs = getWordsByPartOfSpeech(PartOfSpeech.VERB);
-        if (verbs.isEmpty()) return null;
-        
-        Word verb = verbs.get(random.nextInt(verbs.size()));
-        return copyWord(verb);
-    }
-    
-    /**
-     * Получить случайный предлог
-     */
-    private Word getRandomPreposition() {
-        List<Word> preps = getWordsByPartOfSpeech(PartOfSpeech.PREPOSITION);
-        if (preps.isEmpty()) return null;
-        
-        Word prep = preps.get(random.nextInt(preps.size()));
-        return copyWord(prep);
+
+        Lexeme word;
+        if (declension != null) {
+            // Слова с нужной формой: сначала нужного рода, затем любого
+            word = genus != null ? index.get(pos, genus, declension).pick(random) : null;
+            if (word == null) {
+                if (genus != null && metrics != null) {
+                    metrics.genusFallback();
+                }
+                word = index.get(pos, declension).pick(random);
+            }
+        } else {
+            word = genus != null ? index.get(pos, genus).pick(random) : null;
+            // Глаголы согласуются спряжением, а не выбором слова, - это не запасной путь
+            if (word == null && genus != null && time == null && metrics != null) {
+                metrics.genusFallback();
+            }
+        }
+        if (word == null) {
+            // Если нет слов с нужной формой, берем любое
+            word = index.get(pos).pick(random);
+            if (word == null) return null;
+            if (declension != null && metrics != null) {
+                metrics.formFallback();
+            }
+        }
+
+        return inflect(word, declension, time, genus, plural);
     }
     
     /**
-     * Получить случайное наречие
+     * Форма слова для перехода: падеж, если он у слова есть, иначе время
+     * (прошедшее - в роде genus или во множественном числе), иначе само слово
      */
-    private Word getRandomAdverb() {
-        List<Word> adverbs = getWordsByPartOfSpeech(PartOfSpeech.ADVERB);
-        if (adverbs.isEmpty()) return null;
-        
-        Word adverb = adverbs.get(random.nextInt(adverbs.size()));
-        return copyWord(adverb);
+    static InflectedWord inflect(Lexeme word, Declension declension, Time time, Genus genus, boolean plural) {
+        if (declension != null && word.hasDeclension(declension)) {
+            return new InflectedWord(word, word.declension(declension), declension, null, false,
+                                     word.declensionId(declension));
+        }
+        if (time == Time.PAST) {
+            return conjugateVerb(word, plural ? Genus.PLURAL : genus);
+        }
+        String tense = time == null ? null : word.tense(time);
+        if (tense != null) {
+            return new InflectedWord(word, tense, null, time, false, word.tenseId(time));
+        }
+        return new InflectedWord(word, word.value(), null, null, false, word.valueId());
     }
     
     /**
-     * Спряжение глагола по роду
+     * Спряжение глагола по роду (PLURAL - множественное число)
      */
-    private Word conjugateVerb(Word verb, Genus genus) {
-        Word copy = copyWord(verb);
+    private static InflectedWord conjugateVerb(Lexeme verb, Genus genus) {
+        String pastForm = verb.tense(Time.PAST);
         
         // Проверяем наличие формы прошедшего времени
-        if (!copy.timesVal.containsKey(Time.PAST)) {
+        if (pastForm == null) {
             // Если нет, возвращаем как есть
-            return copy;
+            return new InflectedWord(verb, verb.value(), null, null, false, verb.valueId());
         }
         
-        String pastForm = copy.timesVal.get(Time.PAST);
+        // Возвратные глаголы: окончание ставится перед -ся (злился - злилась)
+        boolean reflexive = pastForm.endsWith("лся");
+        String stem = reflexive ? pastForm.substring(0, pastForm.length() - 2) : pastForm;
         
-        if (genus == Genus.MASCULINE) {
-            copy.value = pastForm;
-        } else if (genus == Genus.FEMININE) {
+        String ending;
+        if (genus == Genus.FEMININE && stem.endsWith("л")) {
             // Простая замена окончания
-            if (pastForm.endsWith("л")) {
-                copy.value = pastForm + "а";
-            } else {
-                copy.value = pastForm;
-            }
-        } else if (genus == Genus.NEUTER) {
-            if (pastForm.endsWith("л")) {
-                copy.value = pastForm + "о";
-            } else {
-                copy.value = pastForm;
-            }
+            ending = "а";
+        } else if (genus == Genus.NEUTER && stem.endsWith("л")) {
+            ending = "о";
+        } else if (genus == Genus.PLURAL && stem.endsWith("л")) {
+            ending = "и";
         } else {
-            copy.value = pastForm;
+            ending = "";
         }
         
-        return copy;
+        if (ending.isEmpty()) {
+            return new InflectedWord(verb, pastForm, null, Time.PAST, genus == Genus.PLURAL, verb.tenseId(Time.PAST));
+        }
+        String value = reflexive ? stem + ending + "сь" : stem + ending;
+        return new InflectedWord(verb, value, null, Time.PAST, genus == Genus.PLURAL);
     }
     
     /**
      * Преобразовать предложение в строку
      */
-    public String sentenceToString(List<Word> sentence) {
+    public String sentenceToString(List<InflectedWord> sentence) {
         if (sentence.isEmpty()) return "";
 
         StringBuilder sb = new StringBuilder();
 
         for (int i = 0; i < sentence.size(); i++) {
-            Word word = sentence.get(i);
+            InflectedWord word = sentence.get(i);
 
             if (i == 0) {
                 // Первое слово с большой буквы
@@ -354,8 +607,8 @@ public class SentenceGenerator {
                 sb.append(" ");
 
                 // Проверяем, не является ли предыдущее слово предлогом
-                Word prevWord = sentence.get(i - 1);
-                if (prevWord.partOfSpeech == PartOfSpeech.PREPOSITION) {
+                InflectedWord prevWord = sentence.get(i - 1);
+                if (prevWord.partOfSpeech() == PartOfSpeech.PREPOSITION) {
                     // Если предыдущее слово - предлог, пишем через пробел как обычно
                     sb.append(word.value);
                 } else {
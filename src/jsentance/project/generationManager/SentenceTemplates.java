@@ -0,0 +1,693 @@
+package jsentance.project.generationManager;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import jsentance.project.wordManager.Declension;
+import jsentance.project.wordManager.Genus;
+import jsentance.project.wordManager.Lexeme;
+import jsentance.project.wordManager.PartOfSpeech;
+import jsentance.project.wordManager.Time;
+
+/**
+ * Скомпилированные шаблоны предложений для потоков однотипных предложений.
+ * Шаблон - фиксированная последовательность позиций, например
+ * "ADJECTIVE NOMINATIVE agree NOUN NOMINATIVE agree VERB PAST agree PREPOSITION NOUN governed";
+ * позиции и модификаторы те же, что в правилах грамматики (см. Grammar), перед шаблоном
+ * можно указать вес. Новая позиция начинается с названия части речи.
+ *
+ * При компиляции для каждой позиции заранее собираются все подходящие формы в UTF-8
+ * (первая позиция - с большой буквы, остальные - с пробелом впереди), одинаковые формы
+ * хранятся один раз с суммарной частотой. Согласование по роду раскрывается в отдельные
+ * варианты шаблона (мужской, женский, средний род или множественное число), управление
+ * предлогов - в отдельные наборы форм для каждого падежа. После этого предложение -
+ * это N случайных номеров и копирование байтов, без автомата, индексов и строк.
+ *
+ * Кроме случайных предложений шаблоны можно перебрать целиком: combinationCount - сколько
+ * всего сочетаний, cursor(from, to) - перебор диапазона номеров с постоянной памятью,
+ * так что весь перебор можно поделить по потокам или процессам диапазонами номеров.
+ *
+ * Шаблоны строятся по словарю на момент компиляции и дальнейшие изменения словаря не видят.
+ * Неизменяемы, поэтому могут использоваться из разных потоков.
+ */
+public final class SentenceTemplates {
+    private static final byte PERIOD = '.';
+    private static final Genus[] SINGULAR = {Genus.MASCULINE, Genus.FEMININE, Genus.NEUTER};
+    private static final int DECLENSION_COUNT = Declension.values().length;
+
+    private final Variant[] variants;
+    private final AliasTable sampler; //null - один вариант
+    private final int maxEncodedLength;
+    private final long[] variantStart; //номер первого сочетания варианта (последний элемент - всего)
+
+    private SentenceTemplates(Variant[] variants, double[] weights) {
+        this.variants = variants;
+        this.sampler = variants.length > 1 ? new AliasTable(weights) : null;
+        int max = 0;
+        for (Variant variant : variants) {
+            max = Math.max(max, variant.maxLength);
+        }
+        this.maxEncodedLength = max + 1;
+        this.variantStart = new long[variants.length + 1];
+        for (int v = 0; v < variants.length; v++) {
+            long start = variantStart[v];
+            long count = variants[v].count;
+            variantStart[v + 1] = start < 0 || count < 0 || start + count < 0 ? -1 : start + count;
+        }
+    }
+
+    /**
+     * Позиция шаблона в том виде, как она записана
+     */
+    private static final class SlotSpec {
+        PartOfSpeech partOfSpeech;
+        Declension declension;
+        Time time;
+        boolean governed;
+        boolean plural;
+        boolean agree;
+    }
+
+    /**
+     * Скомпилированная позиция: готовые формы подряд в одном массиве и выбор между ними
+     */
+    private static final class Slot {
+        final byte[] bytes; //формы подряд
+        final int[] offsets; //начало формы i - offsets[i], конец - offsets[i + 1]
+        final AliasTable sampler; //null - формы равновероятны
+        final byte[] cases; //для предлогов: падеж, которым управляет форма (иначе null)
+        final Slot[] byCase; //для позиции с governed: позиция для каждого падежа (иначе null)
+        final int maxLength;
+        final double total; //суммарная частота форм
+
+        Slot(byte[][] forms, double[] weights, byte[] cases) {
+            this.cases = cases;
+            this.byCase = null;
+            this.offsets = new int[forms.length + 1];
+            boolean uniform = true;
+            double total = 0;
+            int maxLength = 0;
+            for (int i = 0; i < forms.length; i++) {
+                uniform &= weights[i] == weights[0];
+                total += weights[i];
+                maxLength = Math.max(maxLength, forms[i].length);
+                offsets[i + 1] = offsets[i] + forms[i].length;
+            }
+            this.bytes = new byte[offsets[forms.length]];
+            for (int i = 0; i < forms.length; i++) {
+                System.arraycopy(forms[i], 0, bytes, offsets[i], forms[i].length);
+            }
+            this.sampler = uniform ? null : new AliasTable(weights);
+            this.maxLength = maxLength;
+            this.total = total;
+        }
+
+        Slot(Slot[] byCase) {
+            this.bytes = null;
+            this.offsets = null;
+            this.sampler = null;
+            this.cases = null;
+            this.byCase = byCase;
+            int maxLength = 0;
+            double total = 0;
+            for (Slot slot : byCase) {
+                maxLength = Math.max(maxLength, slot.maxLength);
+                total += slot.total;
+            }
+            this.maxLength = maxLength;
+            // Частота слов позиции - средняя по падежам (падеж выбирает предлог)
+            this.total = total / byCase.length;
+        }
+
+        int size() {
+            return offsets.length - 1;
+        }
+
+        int pick(RandomGenerator random) {
+            long bits = random.nextLong();
+            return sampler == null ? AliasTable.column(bits, offsets.length - 1) : sampler.sample(bits);
+        }
+    }
+
+    /**
+     * Вариант шаблона: позиции с уже выбранным родом предложения
+     */
+    private static final class Variant {
+        final Slot[] slots;
+        final int maxLength;
+        final Group[] groups; //разряды перебора
+        final long count; //число сочетаний (-1 - больше Long.MAX_VALUE)
+
+        Variant(Slot[] slots) {
+            this.slots = slots;
+            int maxLength = 0;
+            for (Slot slot : slots) {
+                maxLength += slot.maxLength;
+            }
+            this.maxLength = maxLength;
+
+            // Позиция с governed перебирается вместе со своим предлогом, остальные - по отдельности
+            List<List<Integer>> members = new ArrayList<>();
+            int preposition = -1;
+            for (int i = 0; i < slots.length; i++) {
+                if (slots[i].byCase != null) {
+                    members.get(preposition).add(i);
+                    continue;
+                }
+                if (slots[i].cases != null) {
+                    preposition = members.size();
+                }
+                members.add(new ArrayList<>(List.of(i)));
+            }
+            this.groups = new Group[members.size()];
+            long count = 1;
+            for (int g = 0; g < groups.length; g++) {
+                groups[g] = new Group(slots, members.get(g));
+                count = count < 0 || groups[g].radix < 0 ? -1 : multiply(count, groups[g].radix);
+            }
+            this.count = count;
+        }
+    }
+
+    /**
+     * Разряд перебора: одна позиция или предлог вместе с позициями, падеж которых он задает.
+     * Во втором случае значение разряда сначала выбирает предлог (по накопленным суммам prefix),
+     * а остаток раскладывается по формам зависимых позиций в падеже этого предлога.
+     */
+    private static final class Group {
+        final int[] slots; //номера позиций: первая - сама позиция или предлог
+        final long[] prefix; //для предлога: число сочетаний до формы предлога i (иначе null)
+        final long radix; //сколько значений принимает разряд (-1 - больше Long.MAX_VALUE)
+
+        Group(Slot[] variantSlots, List<Integer> members) {
+            this.slots = members.stream().mapToInt(Integer::intValue).toArray();
+            Slot first = variantSlots[slots[0]];
+            if (slots.length == 1) {
+                this.prefix = null;
+                this.radix = first.size();
+                return;
+            }
+            this.prefix = new long[first.size() + 1];
+            long radix = 0;
+            for (int i = 0; i < first.size() && radix >= 0; i++) {
+                long combinations = 1;
+                for (int j = 1; j < slots.length && combinations >= 0; j++) {
+                    combinations = multiply(combinations, variantSlots[slots[j]].byCase[first.cases[i]].size());
+                }
+                radix = combinations < 0 || radix + combinations < 0 ? -1 : radix + combinations;
+                prefix[i + 1] = radix;
+            }
+            this.radix = radix;
+        }
+    }
+
+    /**
+     * Произведение или -1, если оно не помещается в long
+     */
+    private static long multiply(long a, long b) {
+        long high = Math.multiplyHigh(a, b);
+        long product = a * b;
+        return high != 0 || product < 0 ? -1 : product;
+    }
+
+    /**
+     * Скомпилировать шаблоны по индексу словаря; управление предлогов берется из грамматики
+     */
+    static SentenceTemplates compile(WordIndex index, AgreementTable agreement, Grammar grammar,
+                                     List<String> skeletons) {
+        List<Variant> variants = new ArrayList<>();
+        List<Double> weights = new ArrayList<>();
+        for (String skeleton : skeletons) {
+            String[] tokens = skeleton.strip().split("\\s+");
+            double weight = 1;
+            int first = 0;
+            if (tokens.length > 0 && !tokens[0].isEmpty() && Character.isDigit(tokens[0].charAt(0))) {
+                weight = Double.parseDouble(tokens[0]);
+                first = 1;
+            }
+            List<SlotSpec> specs = parse(tokens, first, skeleton);
+
+            boolean agree = false;
+            boolean plural = false;
+            for (SlotSpec spec : specs) {
+                agree |= spec.agree;
+                plural |= spec.agree && spec.plural;
+            }
+            Genus[] genera = plural ? new Genus[] {Genus.PLURAL} : agree ? SINGULAR : new Genus[] {null};
+
+            // Вариант рода берется с вероятностью, пропорциональной частоте слов первой согласуемой позиции
+            List<Variant> skeletonVariants = new ArrayList<>();
+            List<Double> shares = new ArrayList<>();
+            double totalShare = 0;
+            for (Genus genus : genera) {
+                Slot[] slots = new Slot[specs.size()];
+                double share = -1;
+                boolean preposition = false;
+                for (int i = 0; i < specs.size(); i++) {
+                    SlotSpec spec = specs.get(i);
+                    Slot slot = compileSlot(index, agreement, grammar, spec, genus, preposition, i == 0);
+                    if (slot == null) {
+                        slots = null; // для позиции нет ни одного слова - вариант невозможен
+                        break;
+                    }
+                    if (spec.agree && share < 0) {
+                        share = slot.total;
+                    }
+                    preposition |= slot.cases != null;
+                    slots[i] = slot;
+                }
+                if (slots != null) {
+                    share = share < 0 ? 1 : share;
+                    skeletonVariants.add(new Variant(slots));
+                    shares.add(share);
+                    totalShare += share;
+                }
+            }
+            for (int i = 0; i < skeletonVariants.size(); i++) {
+                variants.add(skeletonVariants.get(i));
+                // Нулевые частоты - варианты рода равновероятны
+                weights.add(totalShare > 0 ? weight * shares.get(i) / totalShare : weight / skeletonVariants.size());
+            }
+        }
+        if (variants.isEmpty()) {
+            throw new IllegalArgumentException("Ни один шаблон не удалось заполнить словами словаря");
+        }
+        double[] w = new double[weights.size()];
+        for (int i = 0; i < w.length; i++) {
+            w[i] = weights.get(i);
+        }
+        return new SentenceTemplates(variants.toArray(new Variant[0]), w);
+    }
+
+    private static List<SlotSpec> parse(String[] tokens, int first, String skeleton) {
+        List<SlotSpec> specs = new ArrayList<>();
+        SlotSpec spec = null;
+        for (int i = first; i < tokens.length; i++) {
+            String token = tokens[i];
+            PartOfSpeech pos = enumValue(PartOfSpeech.class, token);
+            if (pos != null) {
+                spec = new SlotSpec();
+                spec.partOfSpeech = pos;
+                specs.add(spec);
+                continue;
+            }
+            if (spec == null) {
+                throw new IllegalArgumentException("Шаблон должен начинаться с части речи: " + skeleton);
+            }
+            Declension declension = enumValue(Declension.class, token);
+            Time time = enumValue(Time.class, token);
+            if (token.equals("agree")) {
+                spec.agree = true;
+            } else if (token.equals("plural")) {
+                spec.plural = true;
+            } else if (token.equals("governed")) {
+                spec.governed = true;
+            } else if (declension != null) {
+                spec.declension = declension;
+            } else if (time != null) {
+                spec.time = time;
+            } else {
+                throw new IllegalArgumentException("Неизвестный модификатор " + token + " в шаблоне: " + skeleton);
+            }
+            if (spec.governed && spec.declension != null) {
+                throw new IllegalArgumentException("governed и падеж взаимоисключающие: " + skeleton);
+            }
+        }
+        if (specs.isEmpty()) {
+            throw new IllegalArgumentException("Пустой шаблон");
+        }
+        return specs;
+    }
+
+    private static <E extends Enum<E>> E enumValue(Class<E> type, String name) {
+        for (E value : type.getEnumConstants()) {
+            if (value.name().equals(name)) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Собрать формы позиции так же, как их выбирает генератор (см. SentenceGenerator.getWord);
+     * null, если подходящих слов нет
+     */
+    private static Slot compileSlot(WordIndex index, AgreementTable agreement, Grammar grammar, SlotSpec spec,
+                                    Genus genus, boolean afterPreposition, boolean capitalize) {
+        if (spec.governed && afterPreposition) {
+            Slot[] byCase = new Slot[DECLENSION_COUNT];
+            for (Declension d : Declension.values()) {
+                byCase[d.ordinal()] = compileForms(index, agreement, grammar, spec, d, genus, capitalize);
+                if (byCase[d.ordinal()] == null) {
+                    return null;
+                }
+            }
+            return new Slot(byCase);
+        }
+        // governed без предшествующего предлога - падеж не задан, как и в генераторе
+        return compileForms(index, agreement, grammar, spec, spec.governed ? null : spec.declension, genus, capitalize);
+    }
+
+    private static Slot compileForms(WordIndex index, AgreementTable agreement, Grammar grammar, SlotSpec spec,
+                                     Declension declension, Genus genus, boolean capitalize) {
+        PartOfSpeech pos = spec.partOfSpeech;
+        Genus required = spec.agree ? genus : null;
+        boolean plural = spec.plural || (spec.agree && genus == Genus.PLURAL);
+        Map<String, Double> forms = new LinkedHashMap<>();
+
+        if (pos == PartOfSpeech.ADJECTIVE && declension != null && (required != null || plural)) {
+            Bucket<InflectedWord> row = agreement.get(plural ? Genus.PLURAL : required, declension);
+            for (int i = 0; i < row.size(); i++) {
+                forms.merge(AgreementTable.inflected(row.get(i)).value, row.weight(i), Double::sum);
+            }
+        } else {
+            if (plural && declension != null) {
+                Bucket<Lexeme> words = index.getPlural(pos, declension);
+                for (int i = 0; i < words.size(); i++) {
+                    forms.merge(words.get(i).plural(declension), words.get(i).frequency(), Double::sum);
+                }
+            }
+            if (forms.isEmpty()) {
+                Bucket<Lexeme> words = Bucket.empty();
+                if (declension != null) {
+                    words = required != null ? index.get(pos, required, declension) : words;
+                    words = words.size() == 0 ? index.get(pos, declension) : words;
+                } else if (required != null) {
+                    words = index.get(pos, required);
+                }
+                words = words.size() == 0 ? index.get(pos) : words;
+                for (int i = 0; i < words.size(); i++) {
+                    Lexeme word = words.get(i);
+                    forms.merge(SentenceGenerator.inflect(word, declension, spec.time, required, plural).value,
+                                word.frequency(), Double::sum);
+                }
+            }
+        }
+        if (forms.isEmpty()) {
+            return null;
+        }
+
+        byte[][] encoded = new byte[forms.size()][];
+        double[] weights = new double[forms.size()];
+        byte[] cases = pos == PartOfSpeech.PREPOSITION ? new byte[forms.size()] : null;
+        int i = 0;
+        for (Map.Entry<String, Double> form : forms.entrySet()) {
+            String value = form.getKey();
+            encoded[i] = (capitalize ? Character.toUpperCase(value.charAt(0)) + value.substring(1) : " " + value)
+                .getBytes(StandardCharsets.UTF_8);
+            weights[i] = form.getValue();
+            if (cases != null) {
+                cases[i] = (byte) grammar.government(value).ordinal();
+            }
+            i++;
+        }
+        return new Slot(encoded, weights, cases);
+    }
+
+    /**
+     * Сколько байт занимает самое длинное предложение (с точкой)
+     */
+    public int maxEncodedLength() {
+        return maxEncodedLength;
+    }
+
+    /**
+     * Записать случайное предложение в массив с позиции offset в UTF-8
+     * (места должно хватать, см. maxEncodedLength); вернуть позицию после точки
+     */
+    public int render(RandomGenerator random, byte[] out, int offset) {
+        Variant variant = variants[sampler == null ? 0 : sampler.sample(random.nextLong())];
+        int governedCase = 0;
+        for (Slot slot : variant.slots) {
+            if (slot.byCase != null) {
+                slot = slot.byCase[governedCase];
+            }
+            int i = slot.pick(random);
+            int start = slot.offsets[i];
+            int length = slot.offsets[i + 1] - start;
+            System.arraycopy(slot.bytes, start, out, offset, length);
+            offset += length;
+            if (slot.cases != null) {
+                governedCase = slot.cases[i];
+            }
+        }
+        out[offset++] = PERIOD;
+        return offset;
+    }
+
+    /**
+     * Записать случайное предложение в буфер в UTF-8 (места должно хватать, см. maxEncodedLength)
+     */
+    public void render(RandomGenerator random, ByteBuffer out) {
+        if (out.hasArray()) {
+            int start = out.arrayOffset() + out.position();
+            out.position(render(random, out.array(), start) - out.arrayOffset());
+            return;
+        }
+        byte[] sentence = new byte[maxEncodedLength];
+        out.put(sentence, 0, render(random, sentence, 0));
+    }
+
+    /**
+     * Случайное предложение строкой (медленнее render: строка декодируется из байтов)
+     */
+    public String generate(RandomGenerator random) {
+        byte[] sentence = new byte[maxEncodedLength];
+        return new String(sentence, 0, render(random, sentence, 0), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Сколько всего разных предложений дают шаблоны (все сочетания форм всех вариантов)
+     *
+     * @throws ArithmeticException если сочетаний больше Long.MAX_VALUE
+     */
+    public long combinationCount() {
+        long count = variantStart[variants.length];
+        if (count < 0) {
+            throw new ArithmeticException("Сочетаний больше, чем Long.MAX_VALUE");
+        }
+        return count;
+    }
+
+    /**
+     * Записать предложение номер index (0 <= index < combinationCount()) в массив с позиции offset;
+     * вернуть позицию после точки
+     */
+    public int render(long index, byte[] out, int offset) {
+        Cursor cursor = cursor(index, index + 1);
+        return cursor.next(out, offset);
+    }
+
+    /**
+     * Перебор предложений с номерами [from, to) по порядку. Память не зависит от числа сочетаний:
+     * курсор хранит только текущие разряды смешанной системы счисления
+     */
+    public Cursor cursor(long from, long to) {
+        long count = combinationCount();
+        if (from < 0 || to < from || to > count) {
+            throw new IndexOutOfBoundsException("Неверный диапазон [" + from + ", " + to + ") из " + count);
+        }
+        return new Cursor(from, to);
+    }
+
+    /**
+     * Все предложения с номерами [from, to) строками, лениво. Поток можно сделать параллельным:
+     * диапазон делится пополам, каждая часть перебирается своим курсором
+     */
+    public Stream<String> enumerate(long from, long to) {
+        cursor(from, to); // проверка диапазона
+        return StreamSupport.stream(new RangeSpliterator(from, to), false);
+    }
+
+    /**
+     * Все предложения шаблонов строками, лениво
+     */
+    public Stream<String> enumerate() {
+        return enumerate(0, combinationCount());
+    }
+
+    /**
+     * Курсор перебора: счетчик в смешанной системе счисления, в которой разряд - позиция
+     * шаблона (или предлог со своими зависимыми позициями), а основание - число ее форм.
+     * Переход к следующему предложению - увеличение младшего разряда с переносом.
+     * Не потокобезопасен; для нескольких потоков берите курсоры на разные диапазоны.
+     */
+    public final class Cursor {
+        private final long end;
+        private long position;
+        private int variant;
+        private long[] digits;
+        private int[] choice;
+
+        private Cursor(long from, long to) {
+            this.end = to;
+            this.position = from;
+            int v = Arrays.binarySearch(variantStart, from);
+            this.variant = v >= 0 ? v : -v - 2;
+            if (position < end) {
+                seek(from - variantStart[variant]);
+            }
+        }
+
+        /**
+         * Разложить номер внутри варианта на разряды (младший разряд - последняя позиция)
+         */
+        private void seek(long local) {
+            while (variants[variant].count == 0) {
+                variant++;
+            }
+            Group[] groups = variants[variant].groups;
+            digits = new long[groups.length];
+            choice = new int[variants[variant].slots.length];
+            for (int g = groups.length - 1; g >= 0; g--) {
+                digits[g] = local % groups[g].radix;
+                local /= groups[g].radix;
+            }
+        }
+
+        /**
+         * Номер предложения, которое вернет next
+         */
+        public long position() {
+            return position;
+        }
+
+        public boolean hasNext() {
+            return position < end;
+        }
+
+        /**
+         * Записать текущее предложение в массив с позиции offset (места должно хватать,
+         * см. maxEncodedLength) и перейти к следующему; вернуть позицию после точки
+         */
+        public int next(byte[] out, int offset) {
+            if (position >= end) {
+                throw new NoSuchElementException();
+            }
+            Variant current = variants[variant];
+            Group[] groups = current.groups;
+            for (int g = 0; g < groups.length; g++) {
+                decode(current.slots, groups[g], digits[g]);
+            }
+            offset = write(current.slots, out, offset);
+
+            // Следующее сочетание: младший разряд + 1 с переносом, после последнего - следующий вариант
+            position++;
+            int g = groups.length - 1;
+            while (g >= 0 && ++digits[g] == groups[g].radix) {
+                digits[g--] = 0;
+            }
+            if (g < 0 && position < end) {
+                variant++;
+                seek(0);
+            }
+            return offset;
+        }
+
+        /**
+         * Текущее предложение строкой и переход к следующему
+         */
+        public String next() {
+            byte[] sentence = new byte[maxEncodedLength];
+            return new String(sentence, 0, next(sentence, 0), StandardCharsets.UTF_8);
+        }
+
+        private void decode(Slot[] slots, Group group, long digit) {
+            if (group.prefix == null) {
+                choice[group.slots[0]] = (int) digit;
+                return;
+            }
+            int i = Arrays.binarySearch(group.prefix, digit);
+            i = i >= 0 ? i : -i - 2;
+            // Формы предлога, после которых нет ни одного сочетания, пропускаем
+            while (group.prefix[i + 1] == digit) {
+                i++;
+            }
+            choice[group.slots[0]] = i;
+            int governedCase = slots[group.slots[0]].cases[i];
+            long rest = digit - group.prefix[i];
+            for (int j = group.slots.length - 1; j > 0; j--) {
+                int size = slots[group.slots[j]].byCase[governedCase].size();
+                choice[group.slots[j]] = (int) (rest % size);
+                rest /= size;
+            }
+        }
+
+        private int write(Slot[] slots, byte[] out, int offset) {
+            int governedCase = 0;
+            for (int s = 0; s < slots.length; s++) {
+                Slot slot = slots[s].byCase != null ? slots[s].byCase[governedCase] : slots[s];
+                int i = choice[s];
+                int start = slot.offsets[i];
+                int length = slot.offsets[i + 1] - start;
+                System.arraycopy(slot.bytes, start, out, offset, length);
+                offset += length;
+                if (slot.cases != null) {
+                    governedCase = slot.cases[i];
+                }
+            }
+            out[offset++] = PERIOD;
+            return offset;
+        }
+    }
+
+    /**
+     * Делимый диапазон номеров для параллельного перебора
+     */
+    private final class RangeSpliterator implements Spliterator<String> {
+        private long from;
+        private final long to;
+        private Cursor cursor;
+
+        RangeSpliterator(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super String> action) {
+            if (cursor == null) {
+                if (from >= to) {
+                    return false;
+                }
+                cursor = new Cursor(from, to);
+            }
+            if (!cursor.hasNext()) {
+                return false;
+            }
+            action.accept(cursor.next());
+            return true;
+        }
+
+        @Override
+        public Spliterator<String> trySplit() {
+            if (cursor != null || to - from < 2) {
+                return null;
+            }
+            long middle = from + (to - from) / 2;
+            RangeSpliterator prefix = new RangeSpliterator(from, middle);
+            from = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return cursor != null ? to - cursor.position() : to - from;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+        }
+    }
+}
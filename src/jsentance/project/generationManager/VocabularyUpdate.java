@@ -0,0 +1,91 @@
+package jsentance.project.generationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import jsentance.project.wordManager.Lexeme;
+
+/**
+ * Пакет изменений словаря для SentenceGenerator.updateVocabulary: какие лексемы добавить,
+ * какие удалить и какие заменить. Сначала применяются удаления, затем добавления.
+ * Удаляемые лексемы сравниваются по ссылке (берутся, например, из getLexemes());
+ * удаление лексемы, которой нет в словаре, ничего не меняет.
+ *
+ * Стоимость применения определяется размером пакета, а не словаря: затрагиваются только
+ * корзины индекса, в которые попадают эти лексемы; добавление дописывает последний сегмент
+ * корзины, удаление пересобирает только сегменты, где лежали удаленные лексемы.
+ * Пакет не потокобезопасен: его не следует менять, пока он применяется.
+ */
+public final class VocabularyUpdate {
+    private final List<Lexeme> added = new ArrayList<>();
+    private final Set<Lexeme> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * Добавить лексему
+     */
+    public VocabularyUpdate add(Lexeme lexeme) {
+        added.add(Objects.requireNonNull(lexeme));
+        return this;
+    }
+
+    /**
+     * Добавить лексемы
+     */
+    public VocabularyUpdate addAll(Collection<Lexeme> lexemes) {
+        for (Lexeme lexeme : lexemes) {
+            add(lexeme);
+        }
+        return this;
+    }
+
+    /**
+     * Удалить лексему
+     */
+    public VocabularyUpdate remove(Lexeme lexeme) {
+        removed.add(Objects.requireNonNull(lexeme));
+        return this;
+    }
+
+    /**
+     * Удалить лексемы
+     */
+    public VocabularyUpdate removeAll(Collection<Lexeme> lexemes) {
+        for (Lexeme lexeme : lexemes) {
+            remove(lexeme);
+        }
+        return this;
+    }
+
+    /**
+     * Заменить лексему другой (например, с новой частотой или исправленными формами)
+     */
+    public VocabularyUpdate replace(Lexeme old, Lexeme replacement) {
+        return remove(old).add(replacement);
+    }
+
+    /**
+     * Нет ни добавлений, ни удалений
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty();
+    }
+
+    /**
+     * Количество добавляемых и удаляемых лексем
+     */
+    public int size() {
+        return added.size() + removed.size();
+    }
+
+    List<Lexeme> added() {
+        return added;
+    }
+
+    Set<Lexeme> removed() {
+        return removed;
+    }
+}
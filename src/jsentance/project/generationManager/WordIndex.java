@@ -0,0 +1,229 @@
+package jsentance.project.generationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import jsentance.project.wordManager.Declension;
+import jsentance.project.wordManager.Genus;
+import jsentance.project.wordManager.Lexeme;
+import jsentance.project.wordManager.PartOfSpeech;
+
+/**
+ * Неизменяемый индекс словаря: слова разложены по корзинам
+ * по части речи, роду и наличию падежной формы (в единственном и множественном числе).
+ * Строится один раз, после чего выбор слова - это одно обращение к массиву
+ * (или к таблице псевдонимов, если у слов разные частоты).
+ * Корзины с одинаковым составом (например, существительные во всех падежах) хранятся один раз.
+ *
+ * Все корзины лежат в одном массиве; номер корзины (slot) считается по части речи, роду и падежу.
+ * Изменение словаря (update) пересобирает только корзины, в которые попадают добавленные
+ * и удаленные слова, остальные новый индекс делит со старым.
+ */
+final class WordIndex {
+    private static final Lexeme[] EMPTY = new Lexeme[0];
+
+    private static final int POS_COUNT = PartOfSpeech.values().length;
+    private static final int GENUS_COUNT = Genus.values().length;
+    private static final int DECLENSION_COUNT = Declension.values().length;
+
+    // Начала групп корзин в общем массиве
+    private static final int BY_PART_OF_SPEECH = 0;                                               // [часть речи]
+    private static final int BY_GENUS = BY_PART_OF_SPEECH + POS_COUNT;                            // [часть речи][род]
+    private static final int BY_DECLENSION = BY_GENUS + POS_COUNT * GENUS_COUNT;                  // [часть речи][падеж]
+    private static final int BY_GENUS_AND_DECLENSION = BY_DECLENSION + POS_COUNT * DECLENSION_COUNT; // [часть речи][род][падеж]
+    private static final int BY_PLURAL = BY_GENUS_AND_DECLENSION + POS_COUNT * GENUS_COUNT * DECLENSION_COUNT; // [часть речи][падеж мн. числа]
+    private static final int SLOT_COUNT = BY_PLURAL + POS_COUNT * DECLENSION_COUNT;
+
+    /** Сколько корзин может быть у одного слова */
+    private static final int MAX_SLOTS = 2 + 3 * DECLENSION_COUNT;
+
+    private final int size;
+    private final Bucket<Lexeme>[] buckets;
+
+    private WordIndex(int size, Bucket<Lexeme>[] buckets) {
+        this.size = size;
+        this.buckets = buckets;
+    }
+
+    /**
+     * Корзина с весами по частоте слов; одинаковые по составу корзины берутся из pool.
+     * Слова раскладываются в одном порядке, поэтому одинаковый состав - это одинаковый массив.
+     */
+    private static Bucket<Lexeme> bucket(Lexeme[] words, Map<List<Lexeme>, Bucket<Lexeme>> pool) {
+        if (words.length == 0) {
+            return Bucket.empty();
+        }
+        return pool.computeIfAbsent(Arrays.asList(words), key -> Bucket.of(words, Lexeme::frequency));
+    }
+
+    /**
+     * Записать в slots номера корзин слова, вернуть их количество
+     */
+    private static int slots(Lexeme word, int[] slots) {
+        int p = word.partOfSpeech().ordinal();
+        int g = word.genus().ordinal();
+        int n = 0;
+        slots[n++] = BY_PART_OF_SPEECH + p;
+        slots[n++] = BY_GENUS + p * GENUS_COUNT + g;
+        for (Declension d : Declension.values()) {
+            int i = d.ordinal();
+            if (word.hasDeclension(d)) {
+                slots[n++] = BY_DECLENSION + p * DECLENSION_COUNT + i;
+                slots[n++] = BY_GENUS_AND_DECLENSION + (p * GENUS_COUNT + g) * DECLENSION_COUNT + i;
+            }
+            if (word.hasPlural(d)) {
+                slots[n++] = BY_PLURAL + p * DECLENSION_COUNT + i;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Построить индекс по списку слов
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    static WordIndex build(List<Lexeme> words) {
+        // Первый проход: считаем размеры корзин, чтобы выделить массивы точного размера
+        int[] counts = new int[SLOT_COUNT];
+        int[] slots = new int[MAX_SLOTS];
+        for (Lexeme word : words) {
+            int n = slots(word, slots);
+            for (int k = 0; k < n; k++) {
+                counts[slots[k]]++;
+            }
+        }
+
+        Lexeme[][] arrays = new Lexeme[SLOT_COUNT][];
+        for (int s = 0; s < SLOT_COUNT; s++) {
+            arrays[s] = counts[s] == 0 ? EMPTY : new Lexeme[counts[s]];
+        }
+
+        // Второй проход: раскладываем слова, счетчики используем как позиции записи
+        for (Lexeme word : words) {
+            int n = slots(word, slots);
+            for (int k = 0; k < n; k++) {
+                int s = slots[k];
+                arrays[s][--counts[s]] = word;
+            }
+        }
+
+        Map<List<Lexeme>, Bucket<Lexeme>> pool = new HashMap<>();
+        Bucket<Lexeme>[] buckets = new Bucket[SLOT_COUNT];
+        for (int s = 0; s < SLOT_COUNT; s++) {
+            buckets[s] = bucket(arrays[s], pool);
+        }
+        return new WordIndex(words.size(), buckets);
+    }
+
+    /**
+     * Новый индекс: без слов removed (сравнение по ссылке) и со словами added.
+     * Затрагиваются только корзины этих слов; удаление отсутствующего слова ничего не меняет.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    WordIndex update(Collection<Lexeme> added, Set<Lexeme> removed) {
+        List<Lexeme>[] adds = new List[SLOT_COUNT];
+        Set<Lexeme>[] removes = new Set[SLOT_COUNT];
+        int[] slots = new int[MAX_SLOTS];
+        for (Lexeme word : removed) {
+            int n = slots(word, slots);
+            for (int k = 0; k < n; k++) {
+                if (removes[slots[k]] == null) {
+                    removes[slots[k]] = Collections.newSetFromMap(new IdentityHashMap<>());
+                }
+                removes[slots[k]].add(word);
+            }
+        }
+        for (Lexeme word : added) {
+            int n = slots(word, slots);
+            for (int k = 0; k < n; k++) {
+                if (adds[slots[k]] == null) {
+                    adds[slots[k]] = new ArrayList<>();
+                }
+                adds[slots[k]].add(word);
+            }
+        }
+
+        // Корзины, которые были одним объектом и получили одинаковые изменения, остаются одним объектом
+        Map<List<Object>, Bucket<Lexeme>> pool = new HashMap<>();
+        Bucket<Lexeme>[] next = buckets.clone();
+        for (int s = 0; s < SLOT_COUNT; s++) {
+            if (adds[s] == null && removes[s] == null) {
+                continue;
+            }
+            List<Lexeme> add = adds[s] != null ? adds[s] : List.of();
+            Set<Lexeme> remove = removes[s] != null ? removes[s] : Set.of();
+            Bucket<Lexeme> old = buckets[s];
+            next[s] = pool.computeIfAbsent(Arrays.asList(old, add, remove),
+                                           key -> old.with(add, Lexeme::frequency, remove));
+        }
+
+        int size = 0;
+        for (int p = 0; p < POS_COUNT; p++) {
+            size += next[BY_PART_OF_SPEECH + p].size();
+        }
+        return new WordIndex(size, next);
+    }
+
+    /**
+     * Количество слов в индексе
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Все слова индекса
+     */
+    List<Lexeme> lexemes() {
+        List<Lexeme> words = new ArrayList<>(size);
+        for (int p = 0; p < POS_COUNT; p++) {
+            Bucket<Lexeme> bucket = buckets[BY_PART_OF_SPEECH + p];
+            for (int i = 0; i < bucket.size(); i++) {
+                words.add(bucket.get(i));
+            }
+        }
+        return Collections.unmodifiableList(words);
+    }
+
+    /**
+     * Все слова части речи
+     */
+    Bucket<Lexeme> get(PartOfSpeech pos) {
+        return buckets[BY_PART_OF_SPEECH + pos.ordinal()];
+    }
+
+    /**
+     * Слова части речи указанного рода
+     */
+    Bucket<Lexeme> get(PartOfSpeech pos, Genus genus) {
+        return buckets[BY_GENUS + pos.ordinal() * GENUS_COUNT + genus.ordinal()];
+    }
+
+    /**
+     * Слова части речи, у которых есть форма указанного падежа
+     */
+    Bucket<Lexeme> get(PartOfSpeech pos, Declension declension) {
+        return buckets[BY_DECLENSION + pos.ordinal() * DECLENSION_COUNT + declension.ordinal()];
+    }
+
+    /**
+     * Слова части речи указанного рода, у которых есть форма указанного падежа
+     */
+    Bucket<Lexeme> get(PartOfSpeech pos, Genus genus, Declension declension) {
+        return buckets[BY_GENUS_AND_DECLENSION
+                       + (pos.ordinal() * GENUS_COUNT + genus.ordinal()) * DECLENSION_COUNT + declension.ordinal()];
+    }
+
+    /**
+     * Слова части речи, у которых есть форма множественного числа в указанном падеже
+     */
+    Bucket<Lexeme> getPlural(PartOfSpeech pos, Declension declension) {
+        return buckets[BY_PLURAL + pos.ordinal() * DECLENSION_COUNT + declension.ordinal()];
+    }
+}
@@ -0,0 +1,160 @@
+package jsentance.project.lexiconManager;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import jsentance.project.wordManager.Declension;
+import jsentance.project.wordManager.Lexeme;
+import jsentance.project.wordManager.MorphologyEngine;
+import jsentance.project.wordManager.Time;
+
+/**
+ * Компилятор словаря: читает исходник (строки "слово;род;часть речи[;частота]",
+ * разделитель - табуляция, запятая или точка с запятой) и записывает бинарный файл
+ * со всеми формами слов, который затем открывается через MappedLexicon.
+ *
+ * Морфология (MorphologyEngine) считается один раз при компиляции, а не при каждом запуске.
+ * Для загрузки исходника прямо в генератор без компиляции см. LexiconLoader.
+ */
+public class LexiconCompiler {
+    private final MorphologyEngine morphology;
+    private final Map<String, Integer> stringIds = new HashMap<>();
+    private final List<byte[]> strings = new ArrayList<>();
+    private final List<int[]> records = new ArrayList<>();
+
+    public LexiconCompiler() {
+        this(MorphologyEngine.defaultEngine());
+    }
+
+    public LexiconCompiler(MorphologyEngine morphology) {
+        this.morphology = morphology;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2 && args.length != 3) {
+            System.err.println("Использование: LexiconCompiler <исходник.tsv> <словарь.bin> [правила морфологии]");
+            System.exit(1);
+        }
+        LexiconCompiler compiler = args.length == 3
+            ? new LexiconCompiler(MorphologyEngine.load(Path.of(args[2])))
+            : new LexiconCompiler();
+        compiler.readSource(Path.of(args[0]));
+        compiler.write(Path.of(args[1]));
+        System.out.println("Скомпилировано слов: " + compiler.size());
+    }
+
+    /**
+     * Количество добавленных слов
+     */
+    public int size() {
+        return records.size();
+    }
+
+    /**
+     * Прочитать исходник словаря (разбор и морфология - параллельно, см. LexiconLoader)
+     */
+    public void readSource(Path source) throws IOException {
+        new LexiconLoader(morphology, ForkJoinPool.commonPool()).load(source, chunk -> chunk.forEach(this::add));
+    }
+
+    /**
+     * Добавить слово со всеми его формами
+     */
+    public void add(Lexeme word) {
+        int[] record = new int[2 + 1 + 1 + 6 + 3 + 6];
+        record[0] = word.partOfSpeech().ordinal();
+        record[1] = word.genus().ordinal();
+        record[2] = Float.floatToIntBits(storedFrequency(word.frequency()));
+        record[3] = stringId(word.value());
+        for (Declension d : Declension.values()) {
+            record[4 + d.ordinal()] = stringId(word.declension(d));
+        }
+        for (Time t : Time.values()) {
+            record[10 + t.ordinal()] = stringId(word.tense(t));
+        }
+        for (Declension d : Declension.values()) {
+            record[13 + d.ordinal()] = stringId(word.plural(d));
+        }
+        records.add(record);
+    }
+
+    /**
+     * Частота для записи во float: частоты вне диапазона float приводятся к Float.MIN_VALUE
+     * или Float.MAX_VALUE, иначе в файл попали бы 0 или бесконечность, которые
+     * Lexeme.withFrequency не принимает при загрузке
+     */
+    static float storedFrequency(double frequency) {
+        return (float) Math.min(Math.max(frequency, Float.MIN_VALUE), Float.MAX_VALUE);
+    }
+
+        private int stringId(String form) {
+        if (form == null) {
+            return LexiconFormat.NO_FORM;
+        }
+        Integer id = stringIds.get(form);
+        if (id == null) {
+            id = strings.size();
+            stringIds.put(form, id);
+            strings.add(form.getBytes(StandardCharsets.UTF_8));
+        }
+        return id;
+    }
+
+    /**
+     * Записать бинарный словарь
+     */
+    public void write(Path target) throws IOException {
+        try (OutputStream out = Files.newOutputStream(target)) {
+            write(out);
+        }
+    }
+
+    /**
+     * Записать бинарный словарь в поток
+     */
+    public void write(OutputStream target) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(target, 1 << 16));
+
+        int recordsOffset = LexiconFormat.HEADER_SIZE;
+        int offsetsOffset = recordsOffset + records.size() * LexiconFormat.RECORD_SIZE;
+        int poolOffset = offsetsOffset + (strings.size() + 1) * Integer.BYTES;
+
+        out.writeInt(LexiconFormat.MAGIC);
+        out.writeInt(LexiconFormat.VERSION);
+        out.writeInt(records.size());
+        out.writeInt(strings.size());
+        out.writeInt(recordsOffset);
+        out.writeInt(offsetsOffset);
+        out.writeInt(poolOffset);
+
+        for (int[] record : records) {
+            out.writeByte(record[0]);
+            out.writeByte(record[1]);
+            out.writeShort(0);
+            for (int i = 2; i < record.length; i++) {
+                out.writeInt(record[i]);
+            }
+        }
+
+        int offset = 0;
+        for (byte[] s : strings) {
+            out.writeInt(offset);
+            offset += s.length;
+        }
+        out.writeInt(offset);
+
+        for (byte[] s : strings) {
+            out.write(s);
+        }
+        out.flush();
+    }
+}
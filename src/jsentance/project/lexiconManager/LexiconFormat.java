@@ -0,0 +1,36 @@
+package jsentance.project.lexiconManager;
+
+/**
+ * Константы бинарного формата скомпилированного словаря.
+ *
+ * Раскладка файла (все числа big-endian):
+ * <pre>
+ * заголовок:  int MAGIC, int VERSION, int lexemeCount, int stringCount,
+ *             int recordsOffset, int offsetsOffset, int poolOffset
+ * записи:     lexemeCount записей по RECORD_SIZE байт:
+ *             byte partOfSpeech, byte genus, short 0, float частота (положительная, конечная),
+ *             int value, int[6] падежные формы, int[3] временные формы,
+ *             int[6] формы множественного числа
+ *             (номера строк в пуле, NO_FORM - формы нет)
+ * смещения:   int[stringCount + 1] - начало каждой строки в пуле
+ * пул строк:  UTF-8 байты всех различных форм подряд
+ * </pre>
+ */
+final class LexiconFormat {
+    static final int MAGIC = 0x4A534C58; // "JSLX"
+    static final int VERSION = 3;
+
+    static final int HEADER_SIZE = 7 * Integer.BYTES;
+    static final int RECORD_SIZE = 4 + Float.BYTES + Integer.BYTES * (1 + 6 + 3 + 6);
+
+    static final int FREQUENCY_OFFSET = 4;
+    static final int VALUE_OFFSET = FREQUENCY_OFFSET + Float.BYTES;
+    static final int DECLENSIONS_OFFSET = VALUE_OFFSET + Integer.BYTES;
+    static final int TENSES_OFFSET = DECLENSIONS_OFFSET + 6 * Integer.BYTES;
+    static final int PLURALS_OFFSET = TENSES_OFFSET + 3 * Integer.BYTES;
+
+    static final int NO_FORM = -1;
+
+    private LexiconFormat() {
+    }
+}
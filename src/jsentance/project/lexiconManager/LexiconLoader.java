@@ -0,0 +1,286 @@
+package jsentance.project.lexiconManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import jsentance.project.generationManager.SentenceGenerator;
+import jsentance.project.generationManager.VocabularyUpdate;
+import jsentance.project.wordManager.FormCache;
+import jsentance.project.wordManager.FormPool;
+import jsentance.project.wordManager.Genus;
+import jsentance.project.wordManager.Lexeme;
+import jsentance.project.wordManager.MorphologyEngine;
+import jsentance.project.wordManager.PartOfSpeech;
+
+/**
+ * Параллельная загрузка исходника словаря (формат LexiconCompiler: "слово;род;часть речи[;частота]").
+ *
+ * Вызывающий поток только читает строки и режет их на куски по chunkSize строк;
+ * разбор и морфология (MorphologyEngine.inflect) каждого куска идут задачей в ForkJoinPool.
+ * В работе одновременно не больше maxPendingChunks кусков, поэтому память на загрузку
+ * ограничена независимо от размера файла. Готовые куски отдаются получателю
+ * в вызывающем потоке строго в порядке файла - результат тот же, что при чтении в один поток.
+ *
+ * Формы загруженных лексем хранятся в общем пуле (FormPool) загрузчика. Чтобы задачи
+ * не ждали друг друга на замке общего пула, каждый кусок собирает формы в свой пул,
+ * а затем переносит его в общий одним захватом замка (FormPool.intern(FormPool))
+ * и переводит номера форм своих лексем. Номера форм в общем пуле зависят от порядка
+ * завершения задач; сами лексемы и их порядок - нет.
+ *
+ * С кэшем форм (setFormCache) загрузчик строит ленивые лексемы (MorphologyEngine.lazy):
+ * лексема хранит только слово и номер парадигмы, формы собираются при обращении
+ * и живут в ограниченном FormCache. Пул форм при этом не используется.
+ */
+public final class LexiconLoader {
+    public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    private static final Pattern COLUMNS = Pattern.compile("[\t,;]");
+
+    private final MorphologyEngine morphology;
+    private final ForkJoinPool pool;
+    private FormPool formPool = new FormPool();
+    private FormCache formCache; //null - лексемы с формами в formPool
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int maxPendingChunks;
+
+    /**
+     * Загрузчик с морфологией по умолчанию в общем ForkJoinPool
+     */
+    public LexiconLoader() {
+        this(MorphologyEngine.defaultEngine(), ForkJoinPool.commonPool());
+    }
+
+    public LexiconLoader(MorphologyEngine morphology, ForkJoinPool pool) {
+        this.morphology = morphology;
+        this.pool = pool;
+        this.maxPendingChunks = 2 * pool.getParallelism();
+    }
+
+    /**
+     * Сколько строк разбирает одна задача
+     */
+    public void setChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Размер куска должен быть положительным: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Сколько кусков может быть в работе одновременно (по умолчанию - вдвое больше потоков пула)
+     */
+    public void setMaxPendingChunks(int maxPendingChunks) {
+        if (maxPendingChunks < 1) {
+            throw new IllegalArgumentException("Число кусков должно быть положительным: " + maxPendingChunks);
+        }
+        this.maxPendingChunks = maxPendingChunks;
+    }
+
+    public int getMaxPendingChunks() {
+        return maxPendingChunks;
+    }
+
+    /**
+     * Пул форм загружаемых лексем (по умолчанию - свой пул загрузчика, общий для всех загрузок)
+     */
+    public void setFormPool(FormPool formPool) {
+        this.formPool = Objects.requireNonNull(formPool);
+    }
+
+    public FormPool getFormPool() {
+        return formPool;
+    }
+
+    /**
+     * Загружать ленивые лексемы с формами в кэше formCache (null - лексемы с формами в пуле).
+     * Кэш должен быть построен для морфологии загрузчика
+     */
+    public void setFormCache(FormCache formCache) {
+        if (formCache != null && formCache.morphology() != morphology) {
+            throw new IllegalArgumentException("Кэш форм построен для другой морфологии");
+        }
+        this.formCache = formCache;
+    }
+
+    public FormCache getFormCache() {
+        return formCache;
+    }
+
+    /**
+     * Загрузить весь исходник словаря списком лексем в порядке файла
+     */
+    public List<Lexeme> load(Path source) throws IOException {
+        List<Lexeme> lexemes = new ArrayList<>();
+        load(source, lexemes::addAll);
+        return lexemes;
+    }
+
+    /**
+     * Загрузить исходник и добавить все слова в словарь генератора одним пакетом
+     * (индекс перестраивается один раз, а не на каждый кусок)
+     */
+    public void loadInto(SentenceGenerator generator, Path source) throws IOException {
+        VocabularyUpdate update = new VocabularyUpdate();
+        load(source, update::addAll);
+        generator.updateVocabulary(update);
+    }
+
+    /**
+     * Загрузить исходник, отдавая получателю готовые куски лексем в порядке файла
+     */
+    public void load(Path source, Consumer<List<Lexeme>> sink) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            load(reader, source.toString(), sink);
+        }
+    }
+
+    /**
+     * Загрузить исходник из reader; name - имя источника для сообщений об ошибках
+     */
+    public void load(BufferedReader reader, String name, Consumer<List<Lexeme>> sink) throws IOException {
+        ArrayDeque<ForkJoinTask<List<Lexeme>>> pending = new ArrayDeque<>();
+        try {
+            String[] lines = new String[chunkSize];
+            int count = 0;
+            int firstLine = 1;
+            int lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                lines[count++] = line;
+                if (count == lines.length) {
+                    submit(pending, lines, count, name, firstLine, sink);
+                    lines = new String[chunkSize];
+                    count = 0;
+                    firstLine = lineNumber + 1;
+                }
+            }
+            if (count > 0) {
+                submit(pending, lines, count, name, firstLine, sink);
+            }
+            while (!pending.isEmpty()) {
+                sink.accept(join(pending.poll()));
+            }
+        } finally {
+            for (ForkJoinTask<List<Lexeme>> task : pending) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    private void submit(ArrayDeque<ForkJoinTask<List<Lexeme>>> pending, String[] lines, int count, String name,
+                        int firstLine, Consumer<List<Lexeme>> sink) throws IOException {
+        while (pending.size() >= maxPendingChunks) {
+            sink.accept(join(pending.poll()));
+        }
+        FormPool forms = formPool;
+        FormCache cache = formCache;
+        pending.add(pool.submit(() -> cache != null
+            ? parseLazy(lines, count, name, firstLine, cache)
+            : parse(lines, count, name, firstLine, forms)));
+    }
+
+    private static List<Lexeme> join(ForkJoinTask<List<Lexeme>> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Загрузка словаря прервана", e);
+        } catch (ExecutionException e) {
+            // ForkJoinTask заворачивает проверяемые исключения задачи в RuntimeException
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException ioException) {
+                    throw ioException;
+                }
+            }
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Разобрать кусок строк (выполняется в пуле)
+     */
+    private List<Lexeme> parse(String[] lines, int count, String name, int firstLine, FormPool forms)
+            throws IOException {
+        FormPool chunkForms = new FormPool();
+        List<Lexeme> lexemes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Lexeme word = parseLine(morphology, null, lines[i], name, firstLine + i);
+            if (word != null) {
+                lexemes.add(word.pooled(chunkForms));
+            }
+        }
+        int[] remap = forms.intern(chunkForms);
+        for (int i = 0; i < lexemes.size(); i++) {
+            lexemes.set(i, lexemes.get(i).remapped(forms, remap));
+        }
+        return lexemes;
+    }
+
+    /**
+     * Разобрать кусок строк в ленивые лексемы (выполняется в пуле)
+     */
+    private List<Lexeme> parseLazy(String[] lines, int count, String name, int firstLine, FormCache cache)
+            throws IOException {
+        List<Lexeme> lexemes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Lexeme word = parseLine(morphology, cache, lines[i], name, firstLine + i);
+            if (word != null) {
+                lexemes.add(word);
+            }
+        }
+        return lexemes;
+    }
+
+    /**
+     * Разобрать одну строку исходника в лексему с готовыми формами (cache == null)
+     * или в ленивую лексему с формами в cache; null - пустая строка или комментарий
+     */
+    static Lexeme parseLine(MorphologyEngine morphology, FormCache cache, String line, String name,
+                            int lineNumber) throws IOException {
+        line = line.strip();
+        if (line.isEmpty() || line.startsWith("#")) {
+            return null;
+        }
+        String[] columns = COLUMNS.split(line);
+        if (columns.length != 3 && columns.length != 4) {
+            throw new IOException(name + ":" + lineNumber + ": ожидалось 3 или 4 колонки: " + line);
+        }
+        try {
+            String lemma = columns[0].strip();
+            Genus genus = Genus.valueOf(columns[1].strip().toUpperCase(Locale.ROOT));
+            PartOfSpeech pos = PartOfSpeech.valueOf(columns[2].strip().toUpperCase(Locale.ROOT));
+            Lexeme word = cache != null
+                ? morphology.lazy(lemma, genus, pos, cache) : morphology.inflect(lemma, genus, pos);
+            if (columns.length == 4) {
+                word = word.withFrequency(Double.parseDouble(columns[3].strip()));
+            }
+            return word;
+        } catch (IllegalArgumentException e) {
+            throw new IOException(name + ":" + lineNumber + ": " + e.getMessage(), e);
+        }
+    }
+}
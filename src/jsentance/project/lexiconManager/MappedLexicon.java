@@ -0,0 +1,179 @@
+package jsentance.project.lexiconManager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import jsentance.project.wordManager.Declension;
+import jsentance.project.wordManager.FormPool;
+import jsentance.project.wordManager.Genus;
+import jsentance.project.wordManager.Lexeme;
+import jsentance.project.wordManager.PartOfSpeech;
+import jsentance.project.wordManager.Time;
+
+/**
+ * Скомпилированный словарь, отображенный в память через FileChannel.map.
+ * Записи читаются напрямую из файла, объекты Word не создаются.
+ *
+ * Генератору нужны лексемы с формами в FormPool (toLexemes), поэтому для генерации
+ * словарь все же копируется в кучу: байты различных форм - в пул, записи - в лексемы
+ * (номера форм в int[] на лексему). Это примерно вдвое-втрое больше размера файла;
+ * отображение нужно, только чтобы не разбирать исходник и не считать морфологию заново.
+ * Без копирования обходятся методы по номеру лексемы (partOfSpeech, declensionId, string и т.п.).
+ */
+public final class MappedLexicon {
+    private static final PartOfSpeech[] PARTS_OF_SPEECH = PartOfSpeech.values();
+    private static final Genus[] GENERA = Genus.values();
+    private static final Declension[] DECLENSIONS = Declension.values();
+    private static final Time[] TIMES = Time.values();
+
+    private final ByteBuffer buffer;
+    private final int lexemeCount;
+    private final int stringCount;
+    private final int recordsOffset;
+    private final int offsetsOffset;
+    private final int poolOffset;
+
+    private MappedLexicon(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != LexiconFormat.MAGIC) {
+            throw new IOException("Файл не является скомпилированным словарем");
+        }
+        int version = buffer.getInt(4);
+        if (version != LexiconFormat.VERSION) {
+            throw new IOException("Неподдерживаемая версия словаря: " + version);
+        }
+        this.lexemeCount = buffer.getInt(8);
+        this.stringCount = buffer.getInt(12);
+        this.recordsOffset = buffer.getInt(16);
+        this.offsetsOffset = buffer.getInt(20);
+        this.poolOffset = buffer.getInt(24);
+    }
+
+    /**
+     * Отобразить файл словаря в память
+     */
+    public static MappedLexicon open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new MappedLexicon(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Количество слов
+     */
+    public int size() {
+        return lexemeCount;
+    }
+
+    /**
+     * Количество различных строк в пуле
+     */
+    public int stringCount() {
+        return stringCount;
+    }
+
+    public PartOfSpeech partOfSpeech(int lexeme) {
+        return PARTS_OF_SPEECH[buffer.get(record(lexeme))];
+    }
+
+    public Genus genus(int lexeme) {
+        return GENERA[buffer.get(record(lexeme) + 1)];
+    }
+
+    /**
+     * Относительная частота слова
+     */
+    public double frequency(int lexeme) {
+        return buffer.getFloat(record(lexeme) + LexiconFormat.FREQUENCY_OFFSET);
+    }
+
+    /**
+     * Номер строки исходного слова в пуле
+     */
+    public int valueId(int lexeme) {
+        return buffer.getInt(record(lexeme) + LexiconFormat.VALUE_OFFSET);
+    }
+
+    /**
+     * Номер строки падежной формы в пуле (-1, если формы нет)
+     */
+    public int declensionId(int lexeme, Declension declension) {
+        return buffer.getInt(record(lexeme) + LexiconFormat.DECLENSIONS_OFFSET + declension.ordinal() * Integer.BYTES);
+    }
+
+    /**
+     * Номер строки временной формы в пуле (-1, если формы нет)
+     */
+    public int tenseId(int lexeme, Time time) {
+        return buffer.getInt(record(lexeme) + LexiconFormat.TENSES_OFFSET + time.ordinal() * Integer.BYTES);
+    }
+
+    /**
+     * Номер строки формы множественного числа в пуле (-1, если формы нет)
+     */
+    public int pluralId(int lexeme, Declension declension) {
+        return buffer.getInt(record(lexeme) + LexiconFormat.PLURALS_OFFSET + declension.ordinal() * Integer.BYTES);
+    }
+
+    /**
+     * Декодировать строку пула
+     */
+    public String string(int id) {
+        if (id == LexiconFormat.NO_FORM) {
+            return null;
+        }
+        int start = buffer.getInt(offsetsOffset + id * Integer.BYTES);
+        int end = buffer.getInt(offsetsOffset + (id + 1) * Integer.BYTES);
+        byte[] bytes = new byte[end - start];
+        buffer.get(poolOffset + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Собрать лексемы для генератора в новом пуле форм (см. toLexemes(FormPool))
+     */
+    public List<Lexeme> toLexemes() {
+        return toLexemes(new FormPool());
+    }
+
+    /**
+     * Собрать лексемы для генератора с формами в пуле pool. Каждая строка словаря
+     * добавляется в пул один раз, лексемы хранят только номера форм, морфология не пересчитывается.
+     * Все формы и записи при этом копируются в кучу (см. описание класса).
+     */
+    public List<Lexeme> toLexemes(FormPool pool) {
+        int[] poolIds = new int[stringCount];
+        for (int i = 0; i < stringCount; i++) {
+            poolIds[i] = pool.intern(string(i));
+        }
+
+        List<Lexeme> lexemes = new ArrayList<>(lexemeCount);
+        int pluralSlot = DECLENSIONS.length + TIMES.length;
+        int[] ids = new int[pluralSlot + DECLENSIONS.length];
+        for (int i = 0; i < lexemeCount; i++) {
+            for (Declension d : DECLENSIONS) {
+                ids[d.ordinal()] = lookup(poolIds, declensionId(i, d));
+                ids[pluralSlot + d.ordinal()] = lookup(poolIds, pluralId(i, d));
+            }
+            for (Time t : TIMES) {
+                ids[DECLENSIONS.length + t.ordinal()] = lookup(poolIds, tenseId(i, t));
+            }
+            lexemes.add(new Lexeme(pool.form(poolIds[valueId(i)]), genus(i), partOfSpeech(i), pool, ids)
+                .withFrequency(frequency(i)));
+        }
+        return lexemes;
+    }
+
+    private static int lookup(int[] poolIds, int id) {
+        return id == LexiconFormat.NO_FORM ? FormPool.NO_FORM : poolIds[id];
+    }
+
+    private int record(int lexeme) {
+        return recordsOffset + lexeme * LexiconFormat.RECORD_SIZE;
+    }
+}
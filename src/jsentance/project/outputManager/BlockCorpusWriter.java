@@ -0,0 +1,321 @@
+package jsentance.project.outputManager;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import jsentance.project.generationManager.InflectedWord;
+import jsentance.project.generationManager.SentenceBatch;
+import jsentance.project.wordManager.FormPool;
+
+/**
+ * Запись корпуса в блочном формате (см. CorpusFormat): предложение - последовательность
+ * номеров форм в varint, предложения собираются в блоки по blockSentences штук,
+ * каждый блок сжимается Deflater отдельной задачей в ForkJoinPool. Блоки пишутся в файл
+ * по порядку; сжимаемых одновременно не больше maxPendingBlocks, поэтому память ограничена.
+ * Читается файл через MappedCorpus с доступом к любому предложению без распаковки всего файла.
+ *
+ * В файл пишутся только формы, встретившиеся в записанных предложениях: номер формы в файле
+ * назначается при первой встрече (номер в пуле -> номер в файле), поэтому пул генератора
+ * со всеми словами словаря и их вариантами с большой буквы в файл не попадает.
+ *
+ * Не потокобезопасен; для параллельной генерации используйте writeAll.
+ */
+public final class BlockCorpusWriter implements Closeable {
+    public static final int DEFAULT_BLOCK_SENTENCES = 4096;
+
+    private final DataOutputStream out;
+    private final FormPool forms;
+    private final int blockSentences;
+    private final int level; //уровень Deflater, NO_COMPRESSION - блоки без сжатия
+    private final ForkJoinPool pool;
+    private final int maxPendingBlocks;
+    private final ArrayDeque<ForkJoinTask<Block>> pending = new ArrayDeque<>();
+    private final DataOutputStream index;
+    private final ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+
+    private byte[] block = new byte[1 << 16]; //текущий блок без сжатия
+    private int blockLength;
+    private int blockSize; //предложений в текущем блоке
+    private int blockCount;
+    private long sentences;
+    private long position; //смещение в файле
+    private int[] fileIds = new int[0]; //номер формы в пуле -> номер в файле + 1 (0 - форма не встречалась)
+    private int[] poolIds = new int[256]; //номер формы в файле -> номер в пуле
+    private int formCount; //форм в файле
+    private boolean closed;
+
+    /**
+     * Готовый к записи блок
+     */
+    private record Block(byte[] data, int length, int rawLength, int method) {
+    }
+
+    /**
+     * @param forms пул форм предложений (формы не из пула в него добавляются)
+     * @param level уровень сжатия Deflater (Deflater.NO_COMPRESSION - блоки хранятся как есть)
+     */
+    public BlockCorpusWriter(OutputStream target, FormPool forms, int blockSentences, int level, ForkJoinPool pool)
+            throws IOException {
+        if (blockSentences < 1) {
+            throw new IllegalArgumentException("Размер блока должен быть положительным: " + blockSentences);
+        }
+        if (level != Deflater.DEFAULT_COMPRESSION && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException("Неверный уровень сжатия: " + level);
+        }
+        this.out = new DataOutputStream(new BufferedOutputStream(target, 1 << 16));
+        this.forms = forms;
+        this.blockSentences = blockSentences;
+        this.level = level;
+        this.pool = pool;
+        this.maxPendingBlocks = 2 * pool.getParallelism();
+        this.index = new DataOutputStream(indexBytes);
+
+        out.writeInt(CorpusFormat.MAGIC);
+        out.writeInt(CorpusFormat.VERSION);
+        out.writeInt(blockSentences);
+        out.writeInt(0);
+        position = CorpusFormat.HEADER_SIZE;
+    }
+
+    /**
+     * Открыть файл корпуса (существующий файл перезаписывается): блоки по DEFAULT_BLOCK_SENTENCES
+     * предложений, сжатие по умолчанию в общем ForkJoinPool
+     */
+    public static BlockCorpusWriter open(Path path, FormPool forms) throws IOException {
+        return new BlockCorpusWriter(Files.newOutputStream(path), forms, DEFAULT_BLOCK_SENTENCES,
+                                     Deflater.DEFAULT_COMPRESSION, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Записать предложение
+     */
+    public void write(List<InflectedWord> sentence) throws IOException {
+        int size = sentence.size();
+        ensureCapacity((size + 1) * 5);
+        putVarint(size);
+        for (int i = 0; i < size; i++) {
+            putVarint(fileId(sentence.get(i).formId(forms)));
+        }
+        endSentence();
+    }
+
+    /**
+     * Записать все предложения пакета (пакет должен хранить формы в том же пуле)
+     */
+    public void write(SentenceBatch batch) throws IOException {
+        if (batch.forms() != forms) {
+            throw new IllegalArgumentException("Пакет хранит формы в другом пуле");
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            int start = batch.start(i);
+            int end = batch.end(i);
+            ensureCapacity((end - start + 1) * 5);
+            putVarint(end - start);
+            for (int t = start; t < end; t++) {
+                putVarint(fileId(batch.formId(t)));
+            }
+            endSentence();
+        }
+    }
+
+    /**
+     * Записать все предложения потока в порядке встречи (поток может быть параллельным)
+     */
+    public void writeAll(Stream<List<InflectedWord>> sentences) throws IOException {
+        try {
+            sentences.forEachOrdered(sentence -> {
+                try {
+                    write(sentence);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Количество записанных предложений
+     */
+    public long sentenceCount() {
+        return sentences;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (blockLength + extra > block.length) {
+            block = Arrays.copyOf(block, Math.max(block.length * 2, blockLength + extra));
+        }
+    }
+
+    /**
+     * Номер формы пула в файле; форма, встретившаяся впервые, получает следующий номер
+     */
+    private int fileId(int poolId) {
+        if (poolId == FormPool.NO_FORM) {
+            return poolId;
+        }
+        if (poolId >= fileIds.length) {
+            fileIds = Arrays.copyOf(fileIds, Math.max(poolId + 1, fileIds.length * 2));
+        }
+        int id = fileIds[poolId] - 1;
+        if (id < 0) {
+            if (formCount == poolIds.length) {
+                poolIds = Arrays.copyOf(poolIds, formCount * 2);
+            }
+            id = formCount++;
+            poolIds[id] = poolId;
+            fileIds[poolId] = id + 1;
+        }
+        return id;
+    }
+
+    private void putVarint(int value) {
+        while ((value & ~0x7F) != 0) {
+            block[blockLength++] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        block[blockLength++] = (byte) value;
+    }
+
+    private void endSentence() throws IOException {
+        sentences++;
+        if (++blockSize == blockSentences) {
+            endBlock();
+        }
+    }
+
+    /**
+     * Отдать текущий блок на сжатие и начать новый
+     */
+    private void endBlock() throws IOException {
+        if (blockSize == 0) {
+            return;
+        }
+        byte[] raw = Arrays.copyOf(block, blockLength);
+        blockLength = 0;
+        blockSize = 0;
+        if (level == Deflater.NO_COMPRESSION) {
+            writeBlock(new Block(raw, raw.length, raw.length, CorpusFormat.METHOD_STORED));
+            return;
+        }
+        while (pending.size() >= maxPendingBlocks) {
+            writeBlock(join(pending.poll()));
+        }
+        int blockLevel = level;
+        pending.add(pool.submit(() -> compress(raw, blockLevel)));
+    }
+
+    /**
+     * Сжать блок (выполняется в пуле); если сжатие не помогло, блок хранится как есть
+     */
+    private static Block compress(byte[] raw, int level) {
+        Deflater deflater = new Deflater(level);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            byte[] data = new byte[raw.length + raw.length / 1000 + 64];
+            int length = 0;
+            while (!deflater.finished() && length < raw.length) {
+                length += deflater.deflate(data, length, data.length - length);
+            }
+            if (!deflater.finished() || length >= raw.length) {
+                return new Block(raw, raw.length, raw.length, CorpusFormat.METHOD_STORED);
+            }
+            return new Block(data, length, raw.length, CorpusFormat.METHOD_DEFLATE);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static Block join(ForkJoinTask<Block> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Запись корпуса прервана", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private void writeBlock(Block block) throws IOException {
+        out.write(block.data(), 0, block.length());
+        index.writeLong(position);
+        index.writeInt(block.length());
+        index.writeInt(block.rawLength());
+        index.writeInt(block.method());
+        position += block.length();
+        blockCount++;
+    }
+
+    /**
+     * Дописать последний блок, формы, индекс и концовку и закрыть поток
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            endBlock();
+            while (!pending.isEmpty()) {
+                writeBlock(join(pending.poll()));
+            }
+
+            long formsOffset = position;
+            out.writeInt(formCount);
+            int offset = 0;
+            for (int id = 0; id < formCount; id++) {
+                out.writeInt(offset);
+                offset += forms.length(poolIds[id]);
+            }
+            out.writeInt(offset);
+            byte[] form = new byte[256];
+            for (int id = 0; id < formCount; id++) {
+                int length = forms.length(poolIds[id]);
+                if (length > form.length) {
+                    form = new byte[length];
+                }
+                out.write(form, 0, forms.copy(poolIds[id], form, 0));
+            }
+            position += Integer.BYTES * (formCount + 2L) + offset;
+
+            long indexOffset = position;
+            indexBytes.writeTo(out);
+
+            out.writeLong(formsOffset);
+            out.writeLong(indexOffset);
+            out.writeLong(sentences);
+            out.writeInt(blockCount);
+            out.writeInt(CorpusFormat.MAGIC);
+            out.flush();
+        } finally {
+            for (ForkJoinTask<Block> task : pending) {
+                task.cancel(false);
+            }
+            out.close();
+        }
+    }
+}
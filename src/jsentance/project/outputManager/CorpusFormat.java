@@ -0,0 +1,35 @@
+package jsentance.project.outputManager;
+
+/**
+ * Константы блочного формата корпуса (BlockCorpusWriter, MappedCorpus).
+ *
+ * Раскладка файла (все числа big-endian):
+ * <pre>
+ * заголовок:  int MAGIC, int VERSION, int blockSentences, int 0
+ * блоки:      blockCount блоков по blockSentences предложений (последний - меньше);
+ *             в блоке подряд предложения: varint длина, varint номера форм
+ *             (сжат Deflater - METHOD_DEFLATE, или как есть - METHOD_STORED)
+ * формы:      int formCount, int[formCount + 1] начало каждой формы, UTF-8 байты форм подряд
+ *             (только формы, встречающиеся в предложениях, в порядке первой встречи)
+ * индекс:     blockCount записей по INDEX_ENTRY_SIZE байт:
+ *             long смещение блока в файле, int длина в файле, int длина без сжатия, int способ
+ * концовка:   long formsOffset, long indexOffset, long sentenceCount, int blockCount, int MAGIC
+ * </pre>
+ * Формы и индекс пишутся в конце, поэтому корпус пишется одним проходом, а пул форм может
+ * пополняться во время записи. Номера форм в блоках - номера в таблице форм файла,
+ * а не в пуле, которым пользовался генератор. Предложение i лежит в блоке i / blockSentences.
+ */
+final class CorpusFormat {
+    static final int MAGIC = 0x4A534350; // "JSCP"
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = 4 * Integer.BYTES;
+    static final int INDEX_ENTRY_SIZE = Long.BYTES + 3 * Integer.BYTES;
+    static final int FOOTER_SIZE = 3 * Long.BYTES + 2 * Integer.BYTES;
+
+    static final int METHOD_STORED = 0;
+    static final int METHOD_DEFLATE = 1;
+
+    private CorpusFormat() {
+    }
+}
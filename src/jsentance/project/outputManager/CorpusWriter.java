@@ -0,0 +1,140 @@
+package jsentance.project.outputManager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+import jsentance.project.generationManager.InflectedWord;
+import jsentance.project.generationManager.SentenceBatch;
+
+/**
+ * Запись корпуса предложений в канал: по предложению в строке, UTF-8.
+ * Предложения копируются в один большой буфер, в канал уходят крупные блоки.
+ *
+ * Не потокобезопасен; для параллельной генерации используйте writeAll,
+ * который пишет поток предложений в порядке встречи.
+ */
+public final class CorpusWriter implements Closeable {
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private static final byte NEWLINE = '\n';
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final SentenceWriter sentenceWriter = new SentenceWriter();
+    private long sentences;
+
+    public CorpusWriter(WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CorpusWriter(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Открыть файл корпуса (существующий файл перезаписывается)
+     */
+    public static CorpusWriter open(Path path) throws IOException {
+        return new CorpusWriter(FileChannel.open(path,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    /**
+     * Записать предложение и перевод строки
+     */
+    public void write(List<InflectedWord> sentence) throws IOException {
+        int length = sentenceWriter.encodedLength(sentence) + 1;
+        if (buffer.remaining() < length) {
+            flush();
+        }
+        if (buffer.remaining() < length) {
+            // Предложение длиннее всего буфера - пишем его отдельно
+            ByteBuffer large = ByteBuffer.allocate(length);
+            sentenceWriter.render(sentence, large);
+            large.put(NEWLINE).flip();
+            writeFully(large);
+        } else {
+            sentenceWriter.render(sentence, buffer);
+            buffer.put(NEWLINE);
+        }
+        sentences++;
+    }
+
+    /**
+     * Записать все предложения пакета, по одному в строке
+     */
+    public void write(SentenceBatch batch) throws IOException {
+        for (int i = 0; i < batch.size(); i++) {
+            int length = batch.encodedLength(i) + 1;
+            if (buffer.remaining() < length) {
+                flush();
+            }
+            if (buffer.remaining() < length) {
+                ByteBuffer large = ByteBuffer.allocate(length);
+                batch.render(i, large);
+                large.put(NEWLINE).flip();
+                writeFully(large);
+            } else {
+                batch.render(i, buffer);
+                buffer.put(NEWLINE);
+            }
+            sentences++;
+        }
+    }
+
+    /**
+     * Записать все предложения потока в порядке встречи (поток может быть параллельным)
+     */
+    public void writeAll(Stream<List<InflectedWord>> sentences) throws IOException {
+        try {
+            sentences.forEachOrdered(sentence -> {
+                try {
+                    write(sentence);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Количество записанных предложений
+     */
+    public long sentenceCount() {
+        return sentences;
+    }
+
+    /**
+     * Сбросить накопленный буфер в канал
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package jsentance.project.outputManager;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import jsentance.project.wordManager.FormPool;
+
+/**
+ * Корпус в блочном формате (см. CorpusFormat, BlockCorpusWriter), отображенный в память.
+ * Предложение i читается распаковкой одного блока; последний распакованный блок запоминается,
+ * поэтому чтение подряд распаковывает каждый блок один раз.
+ *
+ * Файл отображается окнами по 1 ГБ (соседние окна перекрываются на самый длинный блок,
+ * так что любой блок целиком лежит в одном окне), поэтому размер файла не ограничен 2 ГБ.
+ *
+ * Формы читаются прямо из отображенной таблицы форм файла: при открытии читается только
+ * индекс блоков, формы не декодируются и в кучу не копируются. С большой буквы
+ * первое слово собирается при первой встрече формы в начале предложения.
+ *
+ * Не потокобезопасен: каждому потоку - свой MappedCorpus (открытие дешевое: индекс блоков
+ * и отображение файла, без разбора таблицы форм).
+ */
+public final class MappedCorpus implements Closeable {
+    private static final long WINDOW = 1L << 30;
+
+    private static final byte SPACE = ' ';
+    private static final byte PERIOD = '.';
+
+    private final FileChannel channel;
+    private final ByteBuffer[] windows;
+    private final int blockSentences;
+    private final long sentenceCount;
+    private final int blockCount;
+    private final long[] blockOffsets;
+    private final int[] storedLengths;
+    private final int[] rawLengths;
+    private final int[] methods;
+    private final ByteBuffer formTable; //таблица форм файла (см. CorpusFormat)
+    private final int formCount;
+    private final int formBytes; //начало байт форм в formTable
+    private final Inflater inflater = new Inflater();
+    private FormPool forms; //формы файла в пуле, собирается по требованию (forms())
+
+    private int cachedBlock = -1;
+    private byte[] raw = new byte[0]; //распакованный блок
+    private int[] starts = new int[0]; //начало каждого предложения блока в raw
+    private byte[][] capitalized = new byte[0][]; //номер формы -> UTF-8 формы с большой буквы
+
+    private MappedCorpus(FileChannel channel) throws IOException {
+        this.channel = channel;
+        long size = channel.size();
+        if (size < CorpusFormat.HEADER_SIZE + CorpusFormat.FOOTER_SIZE) {
+            throw new IOException("Файл не является корпусом: слишком короткий");
+        }
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, CorpusFormat.HEADER_SIZE);
+        ByteBuffer footer = channel.map(FileChannel.MapMode.READ_ONLY, size - CorpusFormat.FOOTER_SIZE,
+                                        CorpusFormat.FOOTER_SIZE);
+        if (header.getInt(0) != CorpusFormat.MAGIC || footer.getInt(CorpusFormat.FOOTER_SIZE - Integer.BYTES)
+                != CorpusFormat.MAGIC) {
+            throw new IOException("Файл не является корпусом или не дописан");
+        }
+        int version = header.getInt(4);
+        if (version != CorpusFormat.VERSION) {
+            throw new IOException("Неподдерживаемая версия корпуса: " + version);
+        }
+        this.blockSentences = header.getInt(8);
+        long formsOffset = footer.getLong(0);
+        long indexOffset = footer.getLong(8);
+        this.sentenceCount = footer.getLong(16);
+        this.blockCount = footer.getInt(24);
+
+        ByteBuffer index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset,
+                                       (long) blockCount * CorpusFormat.INDEX_ENTRY_SIZE);
+        this.blockOffsets = new long[blockCount];
+        this.storedLengths = new int[blockCount];
+        this.rawLengths = new int[blockCount];
+        this.methods = new int[blockCount];
+        int maxStored = 0;
+        for (int b = 0; b < blockCount; b++) {
+            int entry = b * CorpusFormat.INDEX_ENTRY_SIZE;
+            blockOffsets[b] = index.getLong(entry);
+            storedLengths[b] = index.getInt(entry + 8);
+            rawLengths[b] = index.getInt(entry + 12);
+            methods[b] = index.getInt(entry + 16);
+            maxStored = Math.max(maxStored, storedLengths[b]);
+        }
+
+        this.formTable = channel.map(FileChannel.MapMode.READ_ONLY, formsOffset, indexOffset - formsOffset);
+        this.formCount = formTable.getInt(0);
+        if (formCount < 0 || Integer.BYTES * (formCount + 2L) > formTable.limit()) {
+            throw new IOException("Таблица форм корпуса повреждена");
+        }
+        this.formBytes = Integer.BYTES * (formCount + 2);
+
+        // Окна по WINDOW байт с перекрытием на самый длинный блок
+        int windowCount = (int) Math.max(1, (formsOffset + WINDOW - 1) / WINDOW);
+        this.windows = new ByteBuffer[windowCount];
+        for (int w = 0; w < windowCount; w++) {
+            long start = w * WINDOW;
+            long length = Math.min(formsOffset - start, WINDOW + maxStored);
+            windows[w] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.max(0, length));
+        }
+    }
+
+    /**
+     * Отобразить файл корпуса в память
+     */
+    public static MappedCorpus open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new MappedCorpus(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Количество предложений
+     */
+    public long size() {
+        return sentenceCount;
+    }
+
+    public int blockCount() {
+        return blockCount;
+    }
+
+    /**
+     * Количество форм в таблице форм файла
+     */
+    public int formCount() {
+        return formCount;
+    }
+
+    /**
+     * Форма номер id из таблицы форм файла (null для FormPool.NO_FORM)
+     */
+    public String form(int id) {
+        if (id == FormPool.NO_FORM) {
+            return null;
+        }
+        byte[] form = new byte[formLength(id)];
+        formTable.get(formBytes + formStart(id), form);
+        return new String(form, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Пул форм корпуса (номера совпадают с номерами в файле). Собирается при первом вызове:
+     * все формы файла декодируются и копируются в кучу
+     */
+    public FormPool forms() {
+        if (forms == null) {
+            FormPool pool = new FormPool();
+            for (int id = 0; id < formCount; id++) {
+                if (pool.intern(form(id)) != id) {
+                    throw new IllegalStateException("Повторяющаяся форма в корпусе: номер " + id);
+                }
+            }
+            forms = pool;
+        }
+        return forms;
+    }
+
+    /**
+     * Номера форм предложения
+     */
+    public int[] formIds(long sentence) {
+        int position = locate(sentence);
+        int length = readVarint(position);
+        position = skipVarint(position);
+        int[] ids = new int[length];
+        for (int i = 0; i < length; i++) {
+            ids[i] = readVarint(position);
+            position = skipVarint(position);
+        }
+        return ids;
+    }
+
+    /**
+     * Сколько байт UTF-8 займет предложение (как SentenceWriter.encodedLength)
+     */
+    public int encodedLength(long sentence) {
+        int position = locate(sentence);
+        int length = readVarint(position);
+        if (length == 0) {
+            return 0;
+        }
+        position = skipVarint(position);
+        int bytes = capitalized(readVarint(position)).length;
+        for (int i = 1; i < length; i++) {
+            position = skipVarint(position);
+            bytes += 1 + formLength(readVarint(position));
+        }
+        return bytes + 1;
+    }
+
+    /**
+     * Записать предложение в out с позиции offset (места должно хватать, см. encodedLength);
+     * возвращает позицию после предложения
+     */
+    public int render(long sentence, byte[] out, int offset) {
+        int position = locate(sentence);
+        int length = readVarint(position);
+        if (length == 0) {
+            return offset;
+        }
+        position = skipVarint(position);
+        byte[] first = capitalized(readVarint(position));
+        System.arraycopy(first, 0, out, offset, first.length);
+        offset += first.length;
+        for (int i = 1; i < length; i++) {
+            position = skipVarint(position);
+            out[offset++] = SPACE;
+            offset = copyForm(readVarint(position), out, offset);
+        }
+        out[offset++] = PERIOD;
+        return offset;
+    }
+
+    /**
+     * Предложение строкой (как SentenceGenerator.sentenceToString)
+     */
+    public String sentence(long sentence) {
+        byte[] out = new byte[encodedLength(sentence)];
+        render(sentence, out, 0);
+        return new String(out, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Распаковать блок предложения (если он не последний прочитанный) и вернуть начало предложения в raw
+     */
+    private int locate(long sentence) {
+        if (sentence < 0 || sentence >= sentenceCount) {
+            throw new IndexOutOfBoundsException("Предложение " + sentence + " из " + sentenceCount);
+        }
+        int block = (int) (sentence / blockSentences);
+        if (block != cachedBlock) {
+            load(block);
+        }
+        return starts[(int) (sentence % blockSentences)];
+    }
+
+    private void load(int block) {
+        int window = (int) (blockOffsets[block] / WINDOW);
+        int offset = (int) (blockOffsets[block] - window * WINDOW);
+        ByteBuffer stored = windows[window].slice(offset, storedLengths[block]);
+        int rawLength = rawLengths[block];
+        if (raw.length < rawLength) {
+            raw = new byte[rawLength];
+        }
+        if (methods[block] == CorpusFormat.METHOD_DEFLATE) {
+            inflater.reset();
+            inflater.setInput(stored);
+            try {
+                int length = 0;
+                while (length < rawLength && !inflater.finished()) {
+                    int n = inflater.inflate(raw, length, rawLength - length);
+                    if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    length += n;
+                }
+                if (length != rawLength) {
+                    throw new IllegalStateException("Блок " + block + " поврежден: " + length + " из " + rawLength + " байт");
+                }
+            } catch (DataFormatException e) {
+                throw new IllegalStateException("Блок " + block + " поврежден: " + e.getMessage(), e);
+            }
+        } else {
+            stored.get(raw, 0, rawLength);
+        }
+
+        // Начала предложений блока
+        int count = (int) Math.min(blockSentences, sentenceCount - (long) block * blockSentences);
+        if (starts.length < count) {
+            starts = new int[blockSentences];
+        }
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            starts[i] = position;
+            int length = readVarint(position);
+            position = skipVarint(position);
+            for (int t = 0; t < length; t++) {
+                position = skipVarint(position);
+            }
+        }
+        cachedBlock = block;
+    }
+
+    private int readVarint(int position) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = raw[position++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+    }
+
+    private int skipVarint(int position) {
+        while (raw[position++] < 0) {
+            // пропускаем байты продолжения
+        }
+        return position;
+    }
+
+    private int formStart(int id) {
+        return formTable.getInt(Integer.BYTES * (id + 1));
+    }
+
+    /**
+     * Длина формы в байтах UTF-8 (0 для FormPool.NO_FORM)
+     */
+    private int formLength(int id) {
+        return id == FormPool.NO_FORM ? 0 : formTable.getInt(Integer.BYTES * (id + 2)) - formStart(id);
+    }
+
+    private int copyForm(int id, byte[] out, int offset) {
+        int length = formLength(id);
+        if (length > 0) {
+            formTable.get(formBytes + formStart(id), out, offset, length);
+        }
+        return offset + length;
+    }
+
+    /**
+     * UTF-8 байты формы с большой буквы; собираются один раз на форму
+     */
+    private byte[] capitalized(int id) {
+        if (id == FormPool.NO_FORM) {
+            return new byte[0];
+        }
+        if (id >= capitalized.length) {
+            capitalized = Arrays.copyOf(capitalized, Math.max(id + 1, capitalized.length * 2));
+        }
+        byte[] cached = capitalized[id];
+        if (cached == null) {
+            String form = form(id);
+            cached = (form.isEmpty() ? form : Character.toUpperCase(form.charAt(0)) + form.substring(1))
+                .getBytes(StandardCharsets.UTF_8);
+            capitalized[id] = cached;
+        }
+        return cached;
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        channel.close();
+    }
+}
@@ -0,0 +1,118 @@
+package jsentance.project.outputManager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import jsentance.project.generationManager.InflectedWord;
+import jsentance.project.wordManager.FormPool;
+
+/**
+ * Вывод предложения без промежуточной строки: формы слов кодируются в UTF-8
+ * один раз и дальше только копируются в буфер.
+ * Формы слов из пула (InflectedWord.formId) копируются прямо из FormPool, без кэша.
+ * Результат совпадает с SentenceGenerator.sentenceToString.
+ *
+ * Закодированные формы не из пула и первые слова с большой буквы держатся в кэшах
+ * прямого отображения по CACHE_SIZE записей (хэш формы & маска, как недавние формы FormPool):
+ * частые формы не кодируются заново, а память писателя не растет с числом различных форм.
+ *
+ * Не потокобезопасен: кэш закодированных форм у каждого потока свой.
+ */
+public final class SentenceWriter {
+    private static final byte SPACE = ' ';
+    private static final byte PERIOD = '.';
+
+    private static final int CACHE_SIZE = 1 << 12;
+
+    /**
+     * Закодированная форма в кэше
+     */
+    private record Encoded(String form, byte[] bytes) {
+    }
+
+    private final Encoded[] encoded = new Encoded[CACHE_SIZE]; //форма -> UTF-8
+    private final Encoded[] capitalized = new Encoded[CACHE_SIZE]; //форма -> UTF-8 с большой буквы
+
+    /**
+     * Сколько байт займет предложение
+     */
+    public int encodedLength(List<InflectedWord> sentence) {
+        int size = sentence.size();
+        if (size == 0) {
+            return 0;
+        }
+        int length = capitalized(sentence.get(0).value).length;
+        for (int i = 1; i < size; i++) {
+            InflectedWord word = sentence.get(i);
+            length += 1 + (word.formId != FormPool.NO_FORM
+                ? word.source.formPool().length(word.formId)
+                : encoded(word.value).length);
+        }
+        return length + 1;
+    }
+
+    /**
+     * Записать предложение в буфер (места должно хватать, см. encodedLength)
+     */
+    public void render(List<InflectedWord> sentence, ByteBuffer out) {
+        int size = sentence.size();
+        if (size == 0) {
+            return;
+        }
+        // Первое слово с большой буквы
+        out.put(capitalized(sentence.get(0).value));
+        for (int i = 1; i < size; i++) {
+            InflectedWord word = sentence.get(i);
+            out.put(SPACE);
+            if (word.formId != FormPool.NO_FORM) {
+                word.source.formPool().copy(word.formId, out);
+            } else {
+                out.put(encoded(word.value));
+            }
+        }
+        out.put(PERIOD);
+    }
+
+    /**
+     * Записать предложение в Appendable (StringBuilder, Writer и т.д.) без промежуточной строки
+     */
+    public void render(List<InflectedWord> sentence, Appendable out) throws IOException {
+        int size = sentence.size();
+        if (size == 0) {
+            return;
+        }
+        String first = sentence.get(0).value;
+        out.append(Character.toUpperCase(first.charAt(0))).append(first, 1, first.length());
+        for (int i = 1; i < size; i++) {
+            out.append(' ').append(sentence.get(i).value);
+        }
+        out.append('.');
+    }
+
+    private byte[] encoded(String form) {
+        int slot = slot(form);
+        Encoded cached = encoded[slot];
+        if (cached == null || !cached.form().equals(form)) {
+            cached = new Encoded(form, form.getBytes(StandardCharsets.UTF_8));
+            encoded[slot] = cached;
+        }
+        return cached.bytes();
+    }
+
+    private byte[] capitalized(String form) {
+        int slot = slot(form);
+        Encoded cached = capitalized[slot];
+        if (cached == null || !cached.form().equals(form)) {
+            cached = new Encoded(form, (Character.toUpperCase(form.charAt(0)) + form.substring(1))
+                .getBytes(StandardCharsets.UTF_8));
+            capitalized[slot] = cached;
+        }
+        return cached.bytes();
+    }
+
+    private static int slot(String form) {
+        int hash = form.hashCode();
+        return (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+    }
+}
@@ -0,0 +1,242 @@
+package jsentance.project.serverManager;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import jsentance.JSentance;
+import jsentance.project.generationManager.GenerationMetrics;
+import jsentance.project.generationManager.SentenceGenerator;
+import jsentance.project.lexiconManager.MappedLexicon;
+import jsentance.project.outputManager.CorpusWriter;
+
+/**
+ * HTTP-сервер генерации предложений (com.sun.net.httpserver из JDK).
+ * Каждый запрос обслуживается своим виртуальным потоком.
+ *
+ * GET /sentences?count=10000&maxLength=40[&seed=X[&from=N]] - пакет предложений,
+ * по одному в строке (UTF-8), chunked-ответом по мере генерации. С seed предложение номер i
+ * равно generator.generateSentence(maxLength, seed, from + i), поэтому прерванный пакет
+ * можно дозапросить с нужного места; без seed предложения случайные (ThreadLocalRandom
+ * потока запроса, общий генератор случайных чисел SentenceGenerator не потокобезопасен).
+ *
+ * Обратное давление: предложения генерируются в буфер ограниченного размера и генерация
+ * ждет, пока буфер не уйдет в сокет, так что медленный клиент замедляет только свой пакет
+ * и не накапливает его в памяти. Число одновременно генерируемых пакетов ограничено;
+ * сверх него сервер сразу отвечает 503 с заголовком Retry-After.
+ *
+ * GET /metrics - метрики генератора текстом (GenerationMetrics.report), если они включены.
+ */
+public final class SentenceServer implements Closeable {
+    public static final String PATH = "/sentences";
+    public static final String METRICS_PATH = "/metrics";
+    public static final int DEFAULT_MAX_CONCURRENT_BATCHES = 64;
+    public static final long DEFAULT_MAX_BATCH_SIZE = 10_000_000;
+
+    /** Сколько байт ответа держится в памяти на один пакет */
+    private static final int RESPONSE_BUFFER_SIZE = 64 * 1024;
+    private static final int DEFAULT_MAX_LENGTH = 40;
+
+    private final SentenceGenerator generator;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore batches;
+    private volatile long maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+
+    public SentenceServer(SentenceGenerator generator, InetSocketAddress address) throws IOException {
+        this(generator, address, DEFAULT_MAX_CONCURRENT_BATCHES);
+    }
+
+    /**
+     * @param maxConcurrentBatches сколько пакетов генерируется одновременно
+     */
+    public SentenceServer(SentenceGenerator generator, InetSocketAddress address, int maxConcurrentBatches)
+            throws IOException {
+        if (maxConcurrentBatches < 1) {
+            throw new IllegalArgumentException("maxConcurrentBatches < 1: " + maxConcurrentBatches);
+        }
+        this.generator = generator;
+        this.batches = new Semaphore(maxConcurrentBatches);
+        this.server = HttpServer.create(address, 0);
+        this.server.setExecutor(executor);
+        this.server.createContext(PATH, this::handle);
+        this.server.createContext(METRICS_PATH, this::handleMetrics);
+    }
+
+    /**
+     * Запуск: SentenceServer [порт] [словарь.bin]
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        SentenceGenerator generator = args.length > 1
+            ? SentenceGenerator.fromLexemes(MappedLexicon.open(Path.of(args[1])).toLexemes())
+            : new SentenceGenerator(JSentance.createVocabulary());
+        GenerationMetrics metrics = new GenerationMetrics();
+        metrics.register("server");
+        generator.setMetrics(metrics);
+        SentenceServer server = new SentenceServer(generator, new InetSocketAddress(port));
+        server.start();
+        System.out.println("Сервер запущен: http://localhost:" + server.port() + PATH);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Порт, на котором слушает сервер (удобно при запуске на порту 0)
+     */
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Задать наибольший размер пакета (по умолчанию 10 000 000 предложений)
+     */
+    public void setMaxBatchSize(long maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize < 1: " + maxBatchSize);
+        }
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public long getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    /**
+     * Остановить сервер; начатые пакеты прерываются
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                sendError(exchange, 405, "Поддерживается только GET");
+                return;
+            }
+
+            long count;
+            int maxLength;
+            Long seed;
+            long from;
+            try {
+                Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+                count = parseLong(query, "count", 1);
+                long length = parseLong(query, "maxLength", DEFAULT_MAX_LENGTH);
+                if (length < 1 || length > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Неверное значение maxLength: " + length);
+                }
+                maxLength = (int) length;
+                seed = query.containsKey("seed") ? parseLong(query, "seed", 0) : null;
+                from = parseLong(query, "from", 0);
+                if (count < 0 || count > maxBatchSize) {
+                    throw new IllegalArgumentException("count должен быть от 0 до " + maxBatchSize);
+                }
+                if (from < 0 || (seed == null && from != 0)) {
+                    throw new IllegalArgumentException("from задается только вместе с seed и не меньше 0");
+                }
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, 400, e.getMessage());
+                return;
+            }
+
+            if (!batches.tryAcquire()) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                sendError(exchange, 503, "Сервер занят");
+                return;
+            }
+            try {
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+                exchange.sendResponseHeaders(200, 0); // 0 - chunked
+                streamBatch(exchange.getResponseBody(), count, maxLength, seed, from);
+            } finally {
+                batches.release();
+            }
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                sendError(exchange, 405, "Поддерживается только GET");
+                return;
+            }
+            GenerationMetrics metrics = generator.getMetrics();
+            if (metrics == null) {
+                sendError(exchange, 404, "Метрики выключены");
+                return;
+            }
+            byte[] body = metrics.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    /**
+     * Генерировать пакет прямо в ответ. Запись в сокет блокирует виртуальный поток,
+     * пока клиент не примет данные, - это и есть обратное давление
+     */
+    private void streamBatch(OutputStream body, long count, int maxLength, Long seed, long from)
+            throws IOException {
+        try (CorpusWriter writer = new CorpusWriter(Channels.newChannel(body), RESPONSE_BUFFER_SIZE)) {
+            for (long i = 0; i < count; i++) {
+                writer.write(seed != null
+                    ? generator.generateSentence(maxLength, seed, from + i)
+                    : generator.generateSentence(maxLength, ThreadLocalRandom.current()));
+            }
+        }
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            query.put(name, value);
+        }
+        return query;
+    }
+
+    private static long parseLong(Map<String, String> query, String name, long defaultValue) {
+        String value = query.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Неверное значение " + name + ": " + value);
+        }
+    }
+}
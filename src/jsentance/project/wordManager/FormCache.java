@@ -0,0 +1,334 @@
+package jsentance.project.wordManager;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограниченный потокобезопасный кэш форм ленивых лексем.
+ * Память зависит от числа реально используемых форм, а не от размера словаря.
+ *
+ * Вытеснение в духе W-TinyLFU: новая форма попадает в маленькое окно (LRU, 1% емкости),
+ * а вытесненная из окна проходит в основную область, только если по частотному скетчу
+ * к ней обращались чаще, чем к кандидату на вытеснение оттуда. Поэтому разовые обращения
+ * к редким словам не вымывают частые формы.
+ *
+ * Кэш разбит на сегменты со своим замком и своим скетчем; формы, равные слову,
+ * и отсутствующие формы не кэшируются.
+ */
+public final class FormCache {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    private static final int MAX_SEGMENTS = 16;
+    private static final int MIN_SEGMENT_CAPACITY = 64;
+
+    private final MorphologyEngine morphology;
+    private final int capacity;
+    private final Segment[] segments;
+    private final int segmentMask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public FormCache(MorphologyEngine morphology) {
+        this(morphology, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity сколько форм хранится максимум
+     */
+    public FormCache(MorphologyEngine morphology, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity < 1: " + capacity);
+        }
+        this.morphology = morphology;
+        this.capacity = capacity;
+        int count = 1;
+        while (count < MAX_SEGMENTS && capacity / (count * 2) >= MIN_SEGMENT_CAPACITY) {
+            count *= 2;
+        }
+        this.segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(capacity / count + (i < capacity % count ? 1 : 0));
+        }
+        this.segmentMask = count - 1;
+    }
+
+    /**
+     * Морфология, по которой собираются формы
+     */
+    public MorphologyEngine morphology() {
+        return morphology;
+    }
+
+    /**
+     * Форма номер slot (падежи, времена, падежи мн. числа) слова lemma с парадигмой paradigm
+     */
+    String form(String lemma, int paradigm, int slot) {
+        switch (morphology.formKind(paradigm, slot)) {
+            case MorphologyEngine.FORM_NONE:
+                return null;
+            case MorphologyEngine.FORM_LEMMA:
+                return lemma;
+            default:
+                break;
+        }
+
+        Key key = new Key(lemma, paradigm, slot);
+        Segment segment = segments[spread(key.hash) & segmentMask];
+        String form = segment.get(key);
+        if (form != null) {
+            hits.increment();
+            return form;
+        }
+        misses.increment();
+        // Форму собираем вне замка; при гонке остается первая записанная
+        form = morphology.form(lemma, paradigm, slot);
+        return segment.put(key, form, evictions);
+    }
+
+    /**
+     * Емкость кэша (формы)
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Сколько форм сейчас в кэше
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Доля попаданий (0, если обращений еще не было)
+     */
+    public double hitRate() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    /**
+     * Очистить кэш и счетчики
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FormCache[size=%d/%d, hits=%d, misses=%d, evictions=%d, hitRate=%.3f]",
+            size(), capacity, hitCount(), missCount(), evictionCount(), hitRate());
+    }
+
+    private static int spread(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Ключ формы: одинаковые слова с одной парадигмой делят формы
+     */
+    private static final class Key {
+        final String lemma;
+        final int paradigm;
+        final int slot;
+        final int hash;
+
+        Key(String lemma, int paradigm, int slot) {
+            this.lemma = lemma;
+            this.paradigm = paradigm;
+            this.slot = slot;
+            this.hash = (lemma.hashCode() * 31 + paradigm) * 31 + slot;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && paradigm == other.paradigm && slot == other.slot
+                && lemma.equals(other.lemma);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /**
+     * Сегмент: окно и основная область (обе в порядке обращений) и частотный скетч
+     */
+    private static final class Segment {
+        private final LinkedHashMap<Key, String> window = new LinkedHashMap<>(16, 0.75f, true);
+        private final LinkedHashMap<Key, String> main = new LinkedHashMap<>(16, 0.75f, true);
+        private final int windowCapacity;
+        private final int mainCapacity;
+        private final FrequencySketch sketch;
+
+        Segment(int capacity) {
+            this.windowCapacity = Math.max(1, capacity / 100);
+            this.mainCapacity = Math.max(0, capacity - windowCapacity);
+            this.sketch = new FrequencySketch(capacity);
+        }
+
+        synchronized String get(Key key) {
+            sketch.increment(key.hash);
+            String form = window.get(key);
+            return form != null ? form : main.get(key);
+        }
+
+        synchronized String put(Key key, String form, LongAdder evictions) {
+            String existing = window.get(key);
+            if (existing == null) {
+                existing = main.get(key);
+            }
+            if (existing != null) {
+                return existing;
+            }
+            window.put(key, form);
+            if (window.size() > windowCapacity) {
+                admit(removeEldest(window), evictions);
+            }
+            return form;
+        }
+
+        /**
+         * Перенести вытесненную из окна форму в основную область или отбросить ее
+         */
+        private void admit(Map.Entry<Key, String> candidate, LongAdder evictions) {
+            if (main.size() < mainCapacity) {
+                main.put(candidate.getKey(), candidate.getValue());
+                return;
+            }
+            Iterator<Map.Entry<Key, String>> eldest = main.entrySet().iterator();
+            if (eldest.hasNext()) {
+                Map.Entry<Key, String> victim = eldest.next();
+                if (sketch.frequency(candidate.getKey().hash) > sketch.frequency(victim.getKey().hash)) {
+                    eldest.remove();
+                    main.put(candidate.getKey(), candidate.getValue());
+                }
+            }
+            evictions.increment();
+        }
+
+        private static Map.Entry<Key, String> removeEldest(LinkedHashMap<Key, String> map) {
+            Iterator<Map.Entry<Key, String>> eldest = map.entrySet().iterator();
+            Map.Entry<Key, String> entry = eldest.next();
+            Map.Entry<Key, String> copy = Map.entry(entry.getKey(), entry.getValue());
+            eldest.remove();
+            return copy;
+        }
+
+        synchronized int size() {
+            return window.size() + main.size();
+        }
+
+        synchronized void clear() {
+            window.clear();
+            main.clear();
+            sketch.clear();
+        }
+    }
+
+    /**
+     * Приблизительные частоты обращений: count-min скетч из 4-битных счетчиков
+     * (по 16 в long) с четырьмя хэш-функциями. После 10 * capacity увеличений
+     * все счетчики делятся пополам, чтобы старая популярность затухала.
+     */
+    private static final class FrequencySketch {
+        private static final long[] SEEDS = {
+            0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L
+        };
+        private static final long HALF_MASK = 0x7777777777777777L;
+
+        private final long[] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            int length = Integer.highestOneBit(Math.max(8, capacity) - 1) << 1;
+            this.table = new long[length];
+            this.mask = length - 1;
+            this.sampleSize = 10 * Math.max(1, capacity);
+        }
+
+        int frequency(int hash) {
+            int frequency = 15;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int h = indexHash(hash, i);
+                frequency = Math.min(frequency, (int) ((table[h & mask] >>> shift(h)) & 0xF));
+            }
+            return frequency;
+        }
+
+        void increment(int hash) {
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++) {
+                int h = indexHash(hash, i);
+                int shift = shift(h);
+                if (((table[h & mask] >>> shift) & 0xF) < 15) {
+                    table[h & mask] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize) {
+                reset();
+            }
+        }
+
+        private void reset() {
+            for (int i = 0; i < table.length; i++) {
+                table[i] = (table[i] >>> 1) & HALF_MASK;
+            }
+            additions /= 2;
+        }
+
+        void clear() {
+            Arrays.fill(table, 0);
+            additions = 0;
+        }
+
+        private static int indexHash(int hash, int i) {
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h += h >>> 32;
+            return (int) h;
+        }
+
+        /**
+         * Номер 4-битного счетчика внутри long берется из старших битов хэша
+         */
+        private static int shift(int h) {
+            return (h >>> 28) << 2;
+        }
+    }
+}
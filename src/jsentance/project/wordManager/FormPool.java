@@ -0,0 +1,228 @@
+package jsentance.project.wordManager;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Общий пул форм слов: каждая различная форма хранится один раз в UTF-8 в одном массиве байт
+ * и получает номер (int). Лексемы пула (Lexeme.pooled) хранят номера форм вместо ссылок на строки,
+ * а вывод (SentenceWriter) копирует байты формы прямо из пула без кодирования.
+ *
+ * Строки форм в пуле не хранятся: form(id) декодирует форму из байт, а недавно прочитанные
+ * строки держит в небольшом кэше прямого отображения (RECENT_SIZE строк, номер & маска),
+ * поэтому на горячем пути генерации (Lexeme.declension, tense, plural) частые формы
+ * не декодируются заново, а память кэша не зависит от размера пула.
+ *
+ * Поиск формы - открытая адресация по хэшу строки, сравнение - по байтам в пуле.
+ * Кодирование и хэш считаются до замка; под замком только поиск в таблице и дописывание.
+ * Чтение формы по номеру без замков из любого потока, получившего номер вместе с лексемой
+ * (через генератор, очередь, join и т.п.). Для параллельного наполнения формы можно собирать
+ * в своих пулах и переносить целиком (intern(FormPool)) - один захват замка на пул.
+ */
+public final class FormPool {
+    /** Номер отсутствующей формы */
+    public static final int NO_FORM = -1;
+
+    private static final int INITIAL_CAPACITY = 1 << 10;
+    private static final int RECENT_SIZE = 1 << 12;
+
+    /**
+     * Декодированная форма в кэше (поля final - запись видна другим потокам целиком)
+     */
+    private record Recent(int id, String form) {
+    }
+
+    private volatile byte[] bytes = new byte[INITIAL_CAPACITY * 8];
+    private volatile int[] offsets = new int[INITIAL_CAPACITY + 1]; //начало формы i, offsets[size] - конец пула
+    private final Recent[] recent = new Recent[RECENT_SIZE]; //недавно декодированные формы
+    private int[] hashes = new int[INITIAL_CAPACITY];
+    private int[] table = emptyTable(INITIAL_CAPACITY * 2); //номера форм, NO_FORM - свободно
+    private int size;
+
+    /**
+     * Номер формы в пуле; форма добавляется, если ее еще нет (null - NO_FORM)
+     */
+    public int intern(String form) {
+        if (form == null) {
+            return NO_FORM;
+        }
+        byte[] encoded = form.getBytes(StandardCharsets.UTF_8);
+        int hash = form.hashCode();
+        synchronized (this) {
+            return intern(encoded, 0, encoded.length, hash);
+        }
+    }
+
+    /**
+     * Номера форм массива (null - NO_FORM)
+     */
+    public int[] intern(String[] forms) {
+        int[] ids = new int[forms.length];
+        for (int i = 0; i < forms.length; i++) {
+            ids[i] = intern(forms[i]);
+        }
+        return ids;
+    }
+
+    /**
+     * Перенести все формы другого пула; возвращает номера в этом пуле по номерам в other.
+     * Байты и хэши берутся из other без декодирования, замок этого пула захватывается один раз.
+     */
+    public int[] intern(FormPool other) {
+        byte[] b;
+        int[] o;
+        int[] h;
+        int count;
+        synchronized (other) {
+            b = other.bytes;
+            o = other.offsets;
+            h = other.hashes;
+            count = other.size;
+        }
+        int[] ids = new int[count];
+        synchronized (this) {
+            for (int id = 0; id < count; id++) {
+                ids[id] = intern(b, o[id], o[id + 1] - o[id], h[id]);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Найти или дописать форму (вызывается под замком пула)
+     */
+    private int intern(byte[] encoded, int from, int length, int hash) {
+        int mask = table.length - 1;
+        int[] o = offsets;
+        byte[] b = bytes;
+        for (int slot = spread(hash) & mask; ; slot = (slot + 1) & mask) {
+            int id = table[slot];
+            if (id == NO_FORM) {
+                id = append(encoded, from, length, hash);
+                table[slot] = id;
+                if (size * 2 > table.length) {
+                    rehash();
+                }
+                return id;
+            }
+            if (hashes[id] == hash && Arrays.equals(b, o[id], o[id + 1], encoded, from, from + length)) {
+                return id;
+            }
+        }
+    }
+
+    private int append(byte[] encoded, int from, int length, int hash) {
+        int[] o = offsets;
+        byte[] b = bytes;
+        int end = o[size];
+        if (end + length > b.length) {
+            b = Arrays.copyOf(b, Math.max(b.length * 2, end + length));
+        }
+        System.arraycopy(encoded, from, b, end, length);
+        if (size + 1 == o.length) {
+            o = Arrays.copyOf(o, o.length * 2);
+            hashes = Arrays.copyOf(hashes, o.length - 1);
+        }
+        o[size + 1] = end + length;
+        hashes[size] = hash;
+        // Новые массивы публикуются уже заполненными (поля volatile)
+        bytes = b;
+        offsets = o;
+        return size++;
+    }
+
+    private void rehash() {
+        int[] grown = emptyTable(table.length * 2);
+        int mask = grown.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = spread(hashes[id]) & mask;
+            while (grown[slot] != NO_FORM) {
+                slot = (slot + 1) & mask;
+            }
+            grown[slot] = id;
+        }
+        table = grown;
+    }
+
+    private static int[] emptyTable(int capacity) {
+        int[] t = new int[capacity];
+        Arrays.fill(t, NO_FORM);
+        return t;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Форма по номеру (null для NO_FORM); недавно прочитанные формы берутся из кэша без декодирования
+     */
+    public String form(int id) {
+        if (id == NO_FORM) {
+            return null;
+        }
+        int slot = id & (RECENT_SIZE - 1);
+        Recent cached = recent[slot];
+        if (cached != null && cached.id() == id) {
+            return cached.form();
+        }
+        int[] o = offsets;
+        String form = new String(bytes, o[id], o[id + 1] - o[id], StandardCharsets.UTF_8);
+        recent[slot] = new Recent(id, form);
+        return form;
+    }
+
+    /**
+     * Длина формы в байтах UTF-8 (0 для NO_FORM)
+     */
+    public int length(int id) {
+        if (id == NO_FORM) {
+            return 0;
+        }
+        int[] o = offsets;
+        return o[id + 1] - o[id];
+    }
+
+    /**
+     * Скопировать UTF-8 байты формы в out с позиции offset; возвращает позицию после формы
+     */
+    public int copy(int id, byte[] out, int offset) {
+        if (id == NO_FORM) {
+            return offset;
+        }
+        int[] o = offsets;
+        int length = o[id + 1] - o[id];
+        System.arraycopy(bytes, o[id], out, offset, length);
+        return offset + length;
+    }
+
+    /**
+     * Скопировать UTF-8 байты формы в буфер
+     */
+    public void copy(int id, ByteBuffer out) {
+        if (id != NO_FORM) {
+            int[] o = offsets;
+            out.put(bytes, o[id], o[id + 1] - o[id]);
+        }
+    }
+
+    /**
+     * Количество различных форм
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Байт, занятых формами
+     */
+    public synchronized int byteSize() {
+        return offsets[size];
+    }
+
+    @Override
+    public String toString() {
+        return "FormPool{forms=" + size() + ", bytes=" + byteSize() + "}";
+    }
+}
@@ -0,0 +1,417 @@
+package jsentance.project.wordManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Компактное неизменяемое представление слова словаря.
+ * Формы хранятся в массивах фиксированного размера по Declension.ordinal() и Time.ordinal()
+ * вместо двух HashMap на слово. Если все формы совпадают с исходным словом
+ * (глаголы в падежах, предлоги, наречия), массив не хранится вовсе.
+ *
+ * Ленивая лексема (MorphologyEngine.lazy) хранит только слово и номер парадигмы,
+ * а формы берет из общего ограниченного кэша FormCache.
+ *
+ * Лексема пула (pooled) хранит вместо строк номера форм в общем FormPool:
+ * одинаковые формы разных слов лежат в пуле один раз.
+ */
+public final class Lexeme {
+    private static final int DECLENSION_COUNT = Declension.values().length;
+    private static final int TIME_COUNT = Time.values().length;
+    private static final String[] NO_FORMS = new String[DECLENSION_COUNT]; //формы отсутствуют
+    private static final int VALUE_SLOT = MorphologyEngine.FORM_COUNT; //номер исходного слова в ids
+
+    private final String value; //исходное слово
+    private final Genus genus; //род слова
+    private final PartOfSpeech partOfSpeech; //часть речи слова
+    private final String[] declensions; //формы по падежам, null - все формы равны value
+    private final String[] tenses; //формы по временам, null - все формы равны value
+    private final String[] plurals; //формы мн. числа по падежам, null - все формы равны value
+    private final FormCache forms; //кэш форм ленивой лексемы (null - формы в массивах)
+    private final int paradigm; //парадигма ленивой лексемы
+    private final FormPool pool; //пул форм (null - формы не в пуле)
+    private final int[] ids; //номера форм в пуле по слотам MorphologyEngine, последний - исходное слово
+    private final double frequency; //относительная частота слова (вес при случайном выборе)
+
+    /**
+     * Лексема без форм множественного числа
+     */
+    public Lexeme(String value, Genus genus, PartOfSpeech partOfSpeech, String[] declensions, String[] tenses) {
+        this(value, genus, partOfSpeech, declensions, tenses, NO_FORMS);
+    }
+
+    /**
+     * @param declensions формы по Declension.ordinal(), null - неизменяемое слово
+     * @param tenses формы по Time.ordinal(), null - неизменяемое слово
+     * @param plurals формы мн. числа по Declension.ordinal(), null - неизменяемое слово
+     */
+    public Lexeme(String value, Genus genus, PartOfSpeech partOfSpeech, String[] declensions, String[] tenses,
+                  String[] plurals) {
+        if (declensions != null && declensions.length != DECLENSION_COUNT) {
+            throw new IllegalArgumentException("Ожидалось " + DECLENSION_COUNT + " падежных форм: " + value);
+        }
+        if (tenses != null && tenses.length != TIME_COUNT) {
+            throw new IllegalArgumentException("Ожидалось " + TIME_COUNT + " временных форм: " + value);
+        }
+        if (plurals != null && plurals.length != DECLENSION_COUNT) {
+            throw new IllegalArgumentException("Ожидалось " + DECLENSION_COUNT + " форм мн. числа: " + value);
+        }
+        this.value = value;
+        this.genus = genus;
+        this.partOfSpeech = partOfSpeech;
+        this.declensions = allEqual(declensions, value) ? null : declensions.clone();
+        this.tenses = allEqual(tenses, value) ? null : tenses.clone();
+        this.plurals = allEqual(plurals, value) ? null : allNull(plurals) ? NO_FORMS : plurals.clone();
+        this.forms = null;
+        this.paradigm = MorphologyEngine.IDENTITY_PARADIGM;
+        this.pool = null;
+        this.ids = null;
+        this.frequency = 1;
+    }
+
+    /**
+     * Ленивая лексема: формы собираются по парадигме при первом обращении
+     */
+    Lexeme(String value, Genus genus, PartOfSpeech partOfSpeech, FormCache forms, int paradigm) {
+        this.value = value;
+        this.genus = genus;
+        this.partOfSpeech = partOfSpeech;
+        this.declensions = null;
+        this.tenses = null;
+        this.plurals = null;
+        this.forms = forms;
+        this.paradigm = paradigm;
+        this.pool = null;
+        this.ids = null;
+        this.frequency = 1;
+    }
+
+    /**
+     * Лексема пула: формы - номера в pool
+     *
+     * @param ids номера форм: падежи по Declension.ordinal(), времена по Time.ordinal(),
+     * падежи мн. числа (FormPool.NO_FORM - формы нет)
+     */
+    public Lexeme(String value, Genus genus, PartOfSpeech partOfSpeech, FormPool pool, int[] ids) {
+        if (ids.length != MorphologyEngine.FORM_COUNT) {
+            throw new IllegalArgumentException("Ожидалось " + MorphologyEngine.FORM_COUNT + " номеров форм: " + value);
+        }
+        this.value = value;
+        this.genus = genus;
+        this.partOfSpeech = partOfSpeech;
+        this.declensions = null;
+        this.tenses = null;
+        this.plurals = null;
+        this.forms = null;
+        this.paradigm = MorphologyEngine.IDENTITY_PARADIGM;
+        this.pool = pool;
+        this.ids = Arrays.copyOf(ids, MorphologyEngine.FORM_COUNT + 1);
+        this.ids[VALUE_SLOT] = pool.intern(value);
+        this.frequency = 1;
+    }
+
+    private Lexeme(Lexeme source, FormPool pool, int[] ids) {
+        this.value = source.value;
+        this.genus = source.genus;
+        this.partOfSpeech = source.partOfSpeech;
+        this.declensions = null;
+        this.tenses = null;
+        this.plurals = null;
+        this.forms = null;
+        this.paradigm = MorphologyEngine.IDENTITY_PARADIGM;
+        this.pool = pool;
+        this.ids = ids;
+        this.frequency = source.frequency;
+    }
+
+    private Lexeme(Lexeme source, double frequency) {
+        this.value = source.value;
+        this.genus = source.genus;
+        this.partOfSpeech = source.partOfSpeech;
+        this.declensions = source.declensions;
+        this.tenses = source.tenses;
+        this.plurals = source.plurals;
+        this.forms = source.forms;
+        this.paradigm = source.paradigm;
+        this.pool = source.pool;
+        this.ids = source.ids;
+        this.frequency = frequency;
+    }
+
+    public String value() {
+        return value;
+    }
+
+    public Genus genus() {
+        return genus;
+    }
+
+    public PartOfSpeech partOfSpeech() {
+        return partOfSpeech;
+    }
+
+    /**
+     * Форма в падеже (null, если формы нет)
+     */
+    public String declension(Declension declension) {
+        if (forms != null) {
+            return forms.form(value, paradigm, declension.ordinal());
+        }
+        if (ids != null) {
+            return pool.form(ids[declension.ordinal()]);
+        }
+        return declensions == null ? value : declensions[declension.ordinal()];
+    }
+
+    /**
+     * Форма во времени (null, если формы нет)
+     */
+    public String tense(Time time) {
+        if (forms != null) {
+            return forms.form(value, paradigm, DECLENSION_COUNT + time.ordinal());
+        }
+        if (ids != null) {
+            return pool.form(ids[DECLENSION_COUNT + time.ordinal()]);
+        }
+        return tenses == null ? value : tenses[time.ordinal()];
+    }
+
+    /**
+     * Форма множественного числа в падеже (null, если формы нет)
+     */
+    public String plural(Declension declension) {
+        if (forms != null) {
+            return forms.form(value, paradigm, MorphologyEngine.PLURAL_SLOT + declension.ordinal());
+        }
+        if (ids != null) {
+            return pool.form(ids[MorphologyEngine.PLURAL_SLOT + declension.ordinal()]);
+        }
+        return plurals == null ? value : plurals[declension.ordinal()];
+    }
+
+    /**
+     * Относительная частота слова (по умолчанию 1): генератор выбирает слово
+     * с вероятностью, пропорциональной частоте
+     */
+    public double frequency() {
+        return frequency;
+    }
+
+    /**
+     * Та же лексема с другой частотой (формы не копируются)
+     */
+    public Lexeme withFrequency(double frequency) {
+        if (!(frequency > 0) || Double.isInfinite(frequency)) {
+            throw new IllegalArgumentException("Частота должна быть положительным числом: " + frequency);
+        }
+        return frequency == this.frequency ? this : new Lexeme(this, frequency);
+    }
+
+    /**
+     * Формы собираются по требованию, а не хранятся в лексеме
+     */
+    public boolean isLazy() {
+        return forms != null;
+    }
+
+    /**
+     * Та же лексема с формами в пуле pool (ленивая лексема при этом собирает все формы)
+     */
+    public Lexeme pooled(FormPool pool) {
+        if (this.pool == pool) {
+            return this;
+        }
+        int[] formIds = new int[MorphologyEngine.FORM_COUNT];
+        for (Declension d : Declension.values()) {
+            formIds[d.ordinal()] = pool.intern(declension(d));
+            formIds[MorphologyEngine.PLURAL_SLOT + d.ordinal()] = pool.intern(plural(d));
+        }
+        for (Time t : Time.values()) {
+            formIds[DECLENSION_COUNT + t.ordinal()] = pool.intern(tense(t));
+        }
+        Lexeme pooled = new Lexeme(value, genus, partOfSpeech, pool, formIds);
+        return frequency == 1 ? pooled : new Lexeme(pooled, frequency);
+    }
+
+    /**
+     * Та же лексема в пуле pool, куда уже перенесены все формы ее пула:
+     * remap[номер в formPool()] - номер в pool (см. FormPool.intern(FormPool)).
+     * Формы не декодируются; лексема не из пула переносится как pooled(pool).
+     */
+    public Lexeme remapped(FormPool pool, int[] remap) {
+        if (ids == null) {
+            return pooled(pool);
+        }
+        int[] remapped = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            remapped[i] = ids[i] == FormPool.NO_FORM ? FormPool.NO_FORM : remap[ids[i]];
+        }
+        return new Lexeme(this, pool, remapped);
+    }
+
+    /**
+     * Пул форм лексемы (null, если формы не в пуле)
+     */
+    public FormPool formPool() {
+        return pool;
+    }
+
+    /**
+     * Номер падежной формы в formPool() (FormPool.NO_FORM - формы нет или лексема не из пула)
+     */
+    public int declensionId(Declension declension) {
+        return ids == null ? FormPool.NO_FORM : ids[declension.ordinal()];
+    }
+
+    /**
+     * Номер временной формы в formPool() (FormPool.NO_FORM - формы нет или лексема не из пула)
+     */
+    public int tenseId(Time time) {
+        return ids == null ? FormPool.NO_FORM : ids[DECLENSION_COUNT + time.ordinal()];
+    }
+
+    /**
+     * Номер формы мн. числа в formPool() (FormPool.NO_FORM - формы нет или лексема не из пула)
+     */
+    public int pluralId(Declension declension) {
+        return ids == null ? FormPool.NO_FORM : ids[MorphologyEngine.PLURAL_SLOT + declension.ordinal()];
+    }
+
+    /**
+     * Номер исходного слова в formPool() (FormPool.NO_FORM - лексема не из пула)
+     */
+    public int valueId() {
+        return ids == null ? FormPool.NO_FORM : ids[VALUE_SLOT];
+    }
+
+    /**
+     * Проверить, есть ли у слова непустая форма для указанного падежа
+     */
+    public boolean hasDeclension(Declension declension) {
+        if (forms != null) {
+            // Не собираем форму: достаточно знать, что у парадигмы есть шаблон
+            return forms.morphology().formKind(paradigm, declension.ordinal()) != MorphologyEngine.FORM_NONE;
+        }
+        if (ids != null) {
+            return pool.length(ids[declension.ordinal()]) > 0;
+        }
+        String form = declension(declension);
+        return form != null && !form.isEmpty();
+    }
+
+    /**
+     * Адаптер для старого кода: собрать Word с теми же формами без пересчета морфологии
+     */
+    public Word toWord() {
+        Map<Declension, String> declensionVal = new HashMap<>();
+        for (Declension d : Declension.values()) {
+            String form = declension(d);
+            if (form != null) {
+                declensionVal.put(d, form);
+            }
+        }
+        Map<Time, String> timesVal = new HashMap<>();
+        for (Time t : Time.values()) {
+            String form = tense(t);
+            if (form != null) {
+                timesVal.put(t, form);
+            }
+        }
+        Map<Declension, String> pluralVal = new HashMap<>();
+        for (Declension d : Declension.values()) {
+            String form = plural(d);
+            if (form != null) {
+                pluralVal.put(d, form);
+            }
+        }
+        return new Word(value, genus, partOfSpeech, declensionVal, timesVal, pluralVal);
+    }
+
+    /**
+     * Построить лексему из Word (формы берутся уже посчитанными)
+     */
+    public static Lexeme fromWord(Word word) {
+        return fromWord(word, null);
+    }
+
+    /**
+     * Построить лексемы из списка Word; одинаковые строки форм хранятся в одном экземпляре
+     */
+    public static List<Lexeme> fromWords(List<Word> words) {
+        Map<String, String> pool = new HashMap<>();
+        List<Lexeme> lexemes = new ArrayList<>(words.size());
+        for (Word word : words) {
+            lexemes.add(fromWord(word, pool));
+        }
+        return lexemes;
+    }
+
+    private static Lexeme fromWord(Word word, Map<String, String> pool) {
+        String value = intern(word.value, pool);
+        String[] declensions = new String[DECLENSION_COUNT];
+        for (Map.Entry<Declension, String> entry : word.declensionVal.entrySet()) {
+            declensions[entry.getKey().ordinal()] = intern(entry.getValue(), pool);
+        }
+        String[] tenses = new String[TIME_COUNT];
+        for (Map.Entry<Time, String> entry : word.timesVal.entrySet()) {
+            tenses[entry.getKey().ordinal()] = intern(entry.getValue(), pool);
+        }
+        String[] plurals = new String[DECLENSION_COUNT];
+        for (Map.Entry<Declension, String> entry : word.pluralVal.entrySet()) {
+            plurals[entry.getKey().ordinal()] = intern(entry.getValue(), pool);
+        }
+        return new Lexeme(value, word.genus, word.partOfSpeech, declensions, tenses, plurals);
+    }
+
+    private static String intern(String form, Map<String, String> pool) {
+        if (form == null || pool == null) {
+            return form;
+        }
+        String existing = pool.putIfAbsent(form, form);
+        return existing != null ? existing : form;
+    }
+
+    private static boolean allEqual(String[] forms, String value) {
+        if (forms == null) {
+            return true;
+        }
+        for (String form : forms) {
+            if (!value.equals(form)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Проверить, есть ли у слова непустая форма множественного числа в падеже
+     */
+    public boolean hasPlural(Declension declension) {
+        if (forms != null) {
+            return forms.morphology().formKind(paradigm, MorphologyEngine.PLURAL_SLOT + declension.ordinal())
+                != MorphologyEngine.FORM_NONE;
+        }
+        if (ids != null) {
+            return pool.length(ids[MorphologyEngine.PLURAL_SLOT + declension.ordinal()]) > 0;
+        }
+        String form = plural(declension);
+        return form != null && !form.isEmpty();
+    }
+
+    private static boolean allNull(String[] forms) {
+        for (String form : forms) {
+            if (form != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return value;
+    }
+}
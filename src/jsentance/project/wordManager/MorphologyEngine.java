@@ -0,0 +1,482 @@
+package jsentance.project.wordManager;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Морфология по таблице правил: парадигмы склонения и спряжения загружаются из файла
+ * (по умолчанию morphology.rules рядом с классом) и компилируются в дерево обратных суффиксов.
+ * Подходящая парадигма находится за один проход по концу слова (побеждает самый длинный суффикс),
+ * каждая форма собирается одним char[]. Неправильные слова задаются словарем исключений.
+ *
+ * Формат файла:
+ * <pre>
+ * ЧАСТЬ_РЕЧИ | РОД | СУФФИКС | ОТБРОСИТЬ | ПАДЕЖИ | ВРЕМЕНА [| МН_ЧИСЛО]
+ * ! ЧАСТЬ_РЕЧИ | СЛОВО | ПАДЕЖИ | ВРЕМЕНА [| МН_ЧИСЛО]
+ * </pre>
+ * РОД - имя Genus или * (любой); СУФФИКС может содержать классы букв [бвг];
+ * ОТБРОСИТЬ - сколько букв отрезать от слова, чтобы получить основу.
+ * ПАДЕЖИ - шесть шаблонов в порядке Declension, ВРЕМЕНА - три в порядке Time,
+ * МН_ЧИСЛО - шесть падежей множественного числа (нет колонки - нет и форм);
+ * пустая колонка - все формы равны слову.
+ * В шаблоне правила окончание дописывается к основе, в исключении шаблон - готовая форма;
+ * ~ - исходное слово, _ - пробел, одиночный - - формы нет, 0 - основа без окончания.
+ * Среди правил с одинаковым суффиксом выигрывает первое подходящее по роду.
+ */
+public final class MorphologyEngine {
+    static final int DECLENSION_COUNT = Declension.values().length;
+    static final int TIME_COUNT = Time.values().length;
+    static final int PLURAL_SLOT = DECLENSION_COUNT + TIME_COUNT; //первая форма мн. числа
+    static final int FORM_COUNT = PLURAL_SLOT + DECLENSION_COUNT;
+
+    /** Парадигма "все формы равны слову" - для всего, что не подошло ни под одно правило */
+    public static final int IDENTITY_PARADIGM = 0;
+
+    static final int FORM_NONE = 0; //формы нет
+    static final int FORM_LEMMA = 1; //форма равна слову
+    static final int FORM_COMPUTED = 2; //форма собирается по шаблону
+
+    /**
+     * Шаблон формы: префикс + (основа | слово | ничего) + окончание
+     */
+    private static final class Template {
+        static final int LITERAL = 0;
+        static final int STEM = 1;
+        static final int LEMMA = 2;
+
+        final String prefix;
+        final int base;
+        final String suffix;
+        final boolean capitalize; //восстанавливать заглавную букву (нет для форм с префиксом)
+
+        Template(String prefix, int base, String suffix) {
+            this.prefix = prefix;
+            this.base = base;
+            this.suffix = suffix;
+            this.capitalize = prefix.isEmpty();
+        }
+
+        static Template parse(String text, boolean exception) {
+            if (text.equals("-")) {
+                return null;
+            }
+            if (text.equals("0") && !exception) {
+                return new Template("", STEM, "");
+            }
+            text = text.replace('_', ' ');
+            int lemma = text.indexOf('~');
+            if (lemma >= 0) {
+                if (text.length() == 1) {
+                    return MorphologyEngine.LEMMA; // форма равна слову: общий шаблон, formKind - FORM_LEMMA
+                }
+                return new Template(text.substring(0, lemma), LEMMA, text.substring(lemma + 1));
+            }
+            return exception ? new Template("", LITERAL, text) : new Template("", STEM, text);
+        }
+
+        /**
+         * Собрать форму в одном массиве символов
+         */
+        String apply(String lemma, int stemLength, boolean capitalized) {
+            int baseLength = base == STEM ? stemLength : base == LEMMA ? lemma.length() : 0;
+            char[] form = new char[prefix.length() + baseLength + suffix.length()];
+            prefix.getChars(0, prefix.length(), form, 0);
+            lemma.getChars(0, baseLength, form, prefix.length());
+            suffix.getChars(0, suffix.length(), form, prefix.length() + baseLength);
+            if (capitalized && capitalize && form.length > 0) {
+                form[0] = Character.toUpperCase(form[0]);
+            }
+            return new String(form);
+        }
+    }
+
+    private static final Template LEMMA = new Template("", Template.LEMMA, "");
+    private static final Template[] NO_TEMPLATES = new Template[DECLENSION_COUNT]; //форм нет
+
+    /**
+     * Парадигма: сколько букв отрезать и шаблоны всех форм
+     */
+    private static final class Paradigm {
+        final Genus genus; //null - любой род
+        final int strip;
+        final Template[] declensions;
+        final Template[] tenses;
+        final Template[] plurals;
+
+        Paradigm(Genus genus, int strip, Template[] declensions, Template[] tenses, Template[] plurals) {
+            this.genus = genus;
+            this.strip = strip;
+            this.declensions = declensions;
+            this.tenses = tenses;
+            this.plurals = plurals;
+        }
+    }
+
+    /**
+     * Узел дерева обратных суффиксов: дети хранятся в отсортированных массивах
+     */
+    private static final class Node {
+        char[] keys = new char[0];
+        Node[] children = new Node[0];
+        int[] paradigms = new int[0]; //номера парадигм этого суффикса в порядке файла
+
+        Node child(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            return i >= 0 ? children[i] : null;
+        }
+
+        Node childOrCreate(char c) {
+            int i = Arrays.binarySearch(keys, c);
+            if (i >= 0) {
+                return children[i];
+            }
+            i = -i - 1;
+            Node node = new Node();
+            keys = insert(keys, i, c);
+            Node[] grown = new Node[children.length + 1];
+            System.arraycopy(children, 0, grown, 0, i);
+            grown[i] = node;
+            System.arraycopy(children, i, grown, i + 1, children.length - i);
+            children = grown;
+            return node;
+        }
+
+        private static char[] insert(char[] array, int i, char c) {
+            char[] grown = new char[array.length + 1];
+            System.arraycopy(array, 0, grown, 0, i);
+            grown[i] = c;
+            System.arraycopy(array, i, grown, i + 1, array.length - i);
+            return grown;
+        }
+    }
+
+    private final List<Paradigm> paradigms = new ArrayList<>();
+    private final Node[] tries = new Node[PartOfSpeech.values().length]; //[часть речи]
+    private final Map<String, Integer> exceptions = new HashMap<>(); //"ЧАСТЬ_РЕЧИ слово" -> парадигма
+
+    private MorphologyEngine() {
+        Template[] declensions = new Template[DECLENSION_COUNT];
+        Arrays.fill(declensions, LEMMA);
+        Template[] tenses = new Template[TIME_COUNT];
+        Arrays.fill(tenses, LEMMA);
+        paradigms.add(new Paradigm(null, 0, declensions, tenses, declensions)); // IDENTITY_PARADIGM
+        for (int i = 0; i < tries.length; i++) {
+            tries[i] = new Node();
+        }
+    }
+
+    /**
+     * Морфология по умолчанию (morphology.rules)
+     */
+    public static MorphologyEngine defaultEngine() {
+        return DefaultHolder.ENGINE;
+    }
+
+    private static final class DefaultHolder {
+        static final MorphologyEngine ENGINE = loadDefault();
+
+        private static MorphologyEngine loadDefault() {
+            try (InputStream in = MorphologyEngine.class.getResourceAsStream("morphology.rules")) {
+                if (in == null) {
+                    throw new IOException("Не найден ресурс morphology.rules");
+                }
+                return load(new InputStreamReader(in, StandardCharsets.UTF_8), "morphology.rules");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Загрузить правила из файла
+     */
+    public static MorphologyEngine load(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return load(reader, path.toString());
+        }
+    }
+
+    /**
+     * Загрузить правила из потока символов
+     */
+    public static MorphologyEngine load(Reader source, String name) throws IOException {
+        MorphologyEngine engine = new MorphologyEngine();
+        BufferedReader reader = new BufferedReader(source);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            line = line.strip();
+            if (line.isEmpty()) {
+                continue;
+            }
+            try {
+                if (line.startsWith("!")) {
+                    engine.addException(line.substring(1).split("\\|", -1));
+                } else {
+                    engine.addRule(line.split("\\|", -1));
+                }
+            } catch (IllegalArgumentException e) {
+                throw new IOException(name + ":" + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        return engine;
+    }
+
+    private void addRule(String[] columns) {
+        if (columns.length != 6 && columns.length != 7) {
+            throw new IllegalArgumentException("ожидалось 6 или 7 колонок, а не " + columns.length);
+        }
+        PartOfSpeech pos = PartOfSpeech.valueOf(columns[0].strip());
+        String genusName = columns[1].strip();
+        Genus genus = genusName.equals("*") ? null : Genus.valueOf(genusName);
+        List<String> suffixes = expand(columns[2].strip());
+        int strip = Integer.parseInt(columns[3].strip());
+        for (String suffix : suffixes) {
+            if (strip > suffix.length()) {
+                throw new IllegalArgumentException("нельзя отрезать больше букв, чем в суффиксе " + suffix);
+            }
+        }
+
+        int id = paradigms.size();
+        paradigms.add(new Paradigm(genus, strip,
+            templates(columns[4], DECLENSION_COUNT, false),
+            templates(columns[5], TIME_COUNT, false),
+            columns.length == 7 ? templates(columns[6], DECLENSION_COUNT, false) : NO_TEMPLATES));
+
+        for (String suffix : suffixes) {
+            Node node = tries[pos.ordinal()];
+            for (int i = suffix.length() - 1; i >= 0; i--) {
+                node = node.childOrCreate(suffix.charAt(i));
+            }
+            node.paradigms = Arrays.copyOf(node.paradigms, node.paradigms.length + 1);
+            node.paradigms[node.paradigms.length - 1] = id;
+        }
+    }
+
+    private void addException(String[] columns) {
+        if (columns.length != 4 && columns.length != 5) {
+            throw new IllegalArgumentException("ожидалось 4 или 5 колонок, а не " + columns.length);
+        }
+        PartOfSpeech pos = PartOfSpeech.valueOf(columns[0].strip());
+        String lemma = columns[1].strip().toLowerCase(Locale.ROOT);
+        int id = paradigms.size();
+        paradigms.add(new Paradigm(null, 0,
+            templates(columns[2], DECLENSION_COUNT, true),
+            templates(columns[3], TIME_COUNT, true),
+            columns.length == 5 ? templates(columns[4], DECLENSION_COUNT, true) : NO_TEMPLATES));
+        exceptions.put(pos.name() + " " + lemma, id);
+    }
+
+    private static Template[] templates(String column, int count, boolean exception) {
+        String[] parts = column.strip().split("\\s+");
+        Template[] templates = new Template[count];
+        if (parts[0].isEmpty()) {
+            Arrays.fill(templates, LEMMA);
+            return templates;
+        }
+        if (parts.length != count) {
+            throw new IllegalArgumentException("ожидалось " + count + " форм: " + column.strip());
+        }
+        for (int i = 0; i < count; i++) {
+            templates[i] = Template.parse(parts[i], exception);
+        }
+        return templates;
+    }
+
+    /**
+     * Раскрыть классы букв: "[ая]й" -> "ай", "яй"
+     */
+    private static List<String> expand(String pattern) {
+        List<String> result = new ArrayList<>();
+        result.add("");
+        int i = 0;
+        while (i < pattern.length()) {
+            String options;
+            if (pattern.charAt(i) == '[') {
+                int end = pattern.indexOf(']', i);
+                if (end < 0) {
+                    throw new IllegalArgumentException("незакрытый класс букв: " + pattern);
+                }
+                options = pattern.substring(i + 1, end);
+                i = end + 1;
+            } else {
+                options = pattern.substring(i, i + 1);
+                i++;
+            }
+            List<String> next = new ArrayList<>(result.size() * options.length());
+            for (String prefix : result) {
+                for (int j = 0; j < options.length(); j++) {
+                    next.add(prefix + options.charAt(j));
+                }
+            }
+            result = next;
+        }
+        return result;
+    }
+
+    /**
+     * Количество парадигм (включая исключения)
+     */
+    public int paradigmCount() {
+        return paradigms.size();
+    }
+
+    /**
+     * Найти парадигму слова: исключение или самый длинный подходящий суффикс
+     */
+    public int paradigm(String lemma, Genus genus, PartOfSpeech pos) {
+        if (lemma == null || lemma.isEmpty()) {
+            return IDENTITY_PARADIGM;
+        }
+        String lower = lemma.toLowerCase(Locale.ROOT);
+        Integer exception = exceptions.get(pos.name() + " " + lower);
+        if (exception != null) {
+            return exception;
+        }
+
+        int found = IDENTITY_PARADIGM;
+        Node node = tries[pos.ordinal()];
+        for (int i = lower.length() - 1; i >= 0 && node != null; i--) {
+            node = node.child(lower.charAt(i));
+            if (node == null) {
+                break;
+            }
+            for (int id : node.paradigms) {
+                Genus required = paradigms.get(id).genus;
+                if (required == null || required == genus) {
+                    found = id;
+                    break;
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Заполнить падежные формы слова по Declension.ordinal() (null - формы нет)
+     */
+    public void declensions(String lemma, int paradigm, String[] out) {
+        apply(lemma, paradigm, paradigms.get(paradigm).declensions, out);
+    }
+
+    /**
+     * Заполнить временные формы слова по Time.ordinal() (null - формы нет)
+     */
+    public void tenses(String lemma, int paradigm, String[] out) {
+        apply(lemma, paradigm, paradigms.get(paradigm).tenses, out);
+    }
+
+    /**
+     * Заполнить формы множественного числа по Declension.ordinal() (null - формы нет)
+     */
+    public void plurals(String lemma, int paradigm, String[] out) {
+        apply(lemma, paradigm, paradigms.get(paradigm).plurals, out);
+    }
+
+    /**
+     * Одна форма слова (null - формы нет)
+     */
+    public String declension(String lemma, int paradigm, Declension declension) {
+        return form(lemma, paradigms.get(paradigm), paradigms.get(paradigm).declensions[declension.ordinal()]);
+    }
+
+    /**
+     * Одна временная форма слова (null - формы нет)
+     */
+    public String tense(String lemma, int paradigm, Time time) {
+        return form(lemma, paradigms.get(paradigm), paradigms.get(paradigm).tenses[time.ordinal()]);
+    }
+
+    /**
+     * Одна форма множественного числа (null - формы нет)
+     */
+    public String plural(String lemma, int paradigm, Declension declension) {
+        return form(lemma, paradigms.get(paradigm), paradigms.get(paradigm).plurals[declension.ordinal()]);
+    }
+
+    /**
+     * Построить лексему со всеми формами
+     */
+    public Lexeme inflect(String lemma, Genus genus, PartOfSpeech pos) {
+        int paradigm = paradigm(lemma, genus, pos);
+        String[] declensions = new String[DECLENSION_COUNT];
+        String[] tenses = new String[TIME_COUNT];
+        String[] plurals = new String[DECLENSION_COUNT];
+        declensions(lemma, paradigm, declensions);
+        tenses(lemma, paradigm, tenses);
+        plurals(lemma, paradigm, plurals);
+        return new Lexeme(lemma, genus, pos, declensions, tenses, plurals);
+    }
+
+    /**
+     * Лексема без готовых форм: хранит только слово и номер парадигмы,
+     * формы собираются при первом обращении и кэшируются в forms
+     */
+    public Lexeme lazy(String lemma, Genus genus, PartOfSpeech pos, FormCache forms) {
+        if (forms.morphology() != this) {
+            throw new IllegalArgumentException("Кэш форм построен для другой морфологии");
+        }
+        return new Lexeme(lemma, genus, pos, forms, paradigm(lemma, genus, pos));
+    }
+
+    /**
+     * Вид формы номер slot (падежи по Declension.ordinal(), затем времена по Time.ordinal(),
+     * затем падежи множественного числа)
+     */
+    int formKind(int paradigm, int slot) {
+        Template template = template(paradigms.get(paradigm), slot);
+        return template == null ? FORM_NONE : template == LEMMA ? FORM_LEMMA : FORM_COMPUTED;
+    }
+
+    /**
+     * Форма номер slot (null - формы нет)
+     */
+    String form(String lemma, int paradigm, int slot) {
+        Paradigm p = paradigms.get(paradigm);
+        return form(lemma, p, template(p, slot));
+    }
+
+    private static Template template(Paradigm paradigm, int slot) {
+        if (slot < DECLENSION_COUNT) {
+            return paradigm.declensions[slot];
+        }
+        return slot < PLURAL_SLOT ? paradigm.tenses[slot - DECLENSION_COUNT] : paradigm.plurals[slot - PLURAL_SLOT];
+    }
+
+    private void apply(String lemma, int paradigm, Template[] templates, String[] out) {
+        Paradigm p = paradigms.get(paradigm);
+        for (int i = 0; i < templates.length; i++) {
+            out[i] = form(lemma, p, templates[i]);
+        }
+    }
+
+    private static String form(String lemma, Paradigm paradigm, Template template) {
+        if (template == null) {
+            return null;
+        }
+        if (template == LEMMA) {
+            return lemma;
+        }
+        boolean capitalized = Character.isUpperCase(lemma.charAt(0));
+        String base = capitalized ? lemma.toLowerCase(Locale.ROOT) : lemma;
+        return template.apply(base, lemma.length() - paradigm.strip, capitalized);
+    }
+}